@@ -0,0 +1,38 @@
+package ghs.analyzer.app;
+
+import ghs.analyzer.cli.*;
+import ghs.analyzer.discovery.*;
+import ghs.analyzer.graph.*;
+import ghs.analyzer.heuristics.*;
+import ghs.analyzer.io.*;
+import ghs.analyzer.model.*;
+import ghs.analyzer.pipeline.*;
+import ghs.analyzer.sootupview.*;
+import java.nio.file.*;
+
+/**
+ * Report di confronto CHA/RTA: stesse opzioni di Main (base, onlyFrom, maxDepth, batchSize,
+ * ...), una riga JSON per modulo e algoritmo in --out.
+ */
+public final class CallGraphReport {
+
+  public static void main(String[] args) throws Exception {
+    CliOptions opts = CliParser.parse(args);
+    AnalysisConfig cfg = AnalysisConfig.from(opts);
+
+    CallGraphComparison comparison = new CallGraphComparison(
+      new DefaultModuleScanner(),
+      new DefaultInputResolver(),
+      new DefaultViewFactory(),
+      new ClassFileTestDiscovery(),
+      new NameBasedFocalClassHeuristic(),
+      new NameAndDistanceFocalMethodHeuristic(),
+      new BfsTraverser(),
+      new MockUsageDetector(),
+      new UnitIntegrationScorer()
+    );
+    comparison.run(Paths.get(cfg.baseDir()), cfg);
+
+    System.out.println("\n✅ Report completato: " + cfg.outPath());
+  }
+}
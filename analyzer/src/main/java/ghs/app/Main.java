@@ -9,6 +9,8 @@ import ghs.analyzer.model.*;
 import ghs.analyzer.pipeline.*;
 import ghs.analyzer.sootupview.*;
 import java.nio.file.*;
+import java.util.List;
+import java.util.Set;
 
 public final class Main {
 
@@ -19,12 +21,49 @@ public final class Main {
     // I/O e risorse
     ModuleScanner scanner = new DefaultModuleScanner();
     InputResolver inputResolver = new DefaultInputResolver();
-    ProgressStore progress = new FileProgressStore();
     OutputSink out = new JsonlOutputSink(cfg);
+    ModuleAnalyzer moduleAnalyzer = moduleAnalyzer(out);
+    WorkerSupervisor workers = cfg.workers() > 0
+      ? new WorkerSupervisor(
+        cfg,
+        List.of(args),
+        out,
+        new FileProgressStore()
+      )
+      : null;
+    ModuleCoordinator coordinator = cfg.coordinator().isBlank()
+      ? null
+      : new ModuleCoordinator(cfg, out, new FileProgressStore());
+
+    AnalyzerPipeline pipeline = new AnalyzerPipeline(
+      scanner,
+      inputResolver,
+      moduleAnalyzer,
+      workers,
+      coordinator,
+      cfg
+    );
+    pipeline.run(Paths.get(cfg.baseDir()));
+    out.close();
+
+    System.out.println("\n✅ Analisi completata.");
+  }
+
+  /** Analizzatore di moduli con le implementazioni di default. */
+  static ModuleAnalyzer moduleAnalyzer(OutputSink out) {
+    return moduleAnalyzer(out, new FileProgressStore());
+  }
+
+  /** Come sopra con un progress dato; i worker usano workerProgress(). */
+  static ModuleAnalyzer moduleAnalyzer(OutputSink out, ProgressStore progress) {
+    // I/O e risorse
+    InputResolver inputResolver = new DefaultInputResolver();
+    IncrementalStore incremental = new FileIncrementalStore();
+    CallGraphStore cgStore = new FileCallGraphStore();
 
     // SootUp & discovery
     ViewFactory viewFactory = new DefaultViewFactory();
-    TestDiscovery discovery = new JUnitTestDiscovery();
+    TestDiscovery discovery = new ClassFileTestDiscovery();
 
     // Heuristics & graph
     FocalClassHeuristic classHeu = new NameBasedFocalClassHeuristic();
@@ -42,27 +81,41 @@ public final class Main {
       methodHeu,
       bfs,
       mocks,
-      scorer
+      scorer,
+      cgStore
     );
 
-    ModuleAnalyzer moduleAnalyzer = new ModuleAnalyzer(
+    return new ModuleAnalyzer(
       inputResolver,
       viewFactory,
       discovery,
       progress,
+      incremental,
       out,
       fast,
       full
     );
+  }
 
-    AnalyzerPipeline pipeline = new AnalyzerPipeline(
-      scanner,
-      moduleAnalyzer,
-      cfg
-    );
-    pipeline.run(Paths.get(cfg.baseDir()));
-    out.close();
+  /**
+   * Progress di un worker: legge quello del modulo per il resume ma non lo aggiorna. Lo
+   * aggiorna chi riceve i record, dopo averli resi persistenti nel proprio sink.
+   */
+  static ProgressStore workerProgress() {
+    ProgressStore files = new FileProgressStore();
+    return new ProgressStore() {
+      @Override
+      public Set<String> load(Path module, String cfgId) {
+        return files.load(module, cfgId);
+      }
 
-    System.out.println("\n✅ Analisi completata.");
+      @Override
+      public void append(Path module, String cfgId, String key) {}
+
+      @Override
+      public void reset(Path module, String cfgId) {
+        files.reset(module, cfgId);
+      }
+    };
   }
 }
@@ -0,0 +1,44 @@
+package ghs.analyzer.app;
+
+import ghs.analyzer.cli.*;
+import ghs.analyzer.io.*;
+import ghs.analyzer.model.*;
+import ghs.analyzer.pipeline.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Unione degli shard: MergeShards --base cloned_repos --out merged.jsonl s1.jsonl s2.jsonl ...
+ * Gli input (file JSONL o directory di splitByRepo) sono gli argomenti che non sono opzioni
+ * né valori di opzioni; i progress si ricostruiscono nei moduli sotto --base.
+ */
+public final class MergeShards {
+
+  public static void main(String[] args) throws Exception {
+    AnalysisConfig cfg = AnalysisConfig.from(CliParser.parse(args));
+
+    List<Path> inputs = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].startsWith("--")) {
+        // Stessa regola di CliParser: il token seguente è il valore dell'opzione
+        if (i + 1 < args.length && !args[i + 1].startsWith("--")) i++;
+        continue;
+      }
+      inputs.add(Paths.get(args[i]));
+    }
+    if (inputs.isEmpty()) {
+      System.err.println(
+        "Uso: MergeShards --base <corpus> --out <merged.jsonl> <shard.jsonl>..."
+      );
+      System.exit(2);
+    }
+
+    new ShardMerge(new DefaultModuleScanner(), new FileProgressStore()).run(
+      Paths.get(cfg.baseDir()),
+      inputs,
+      Paths.get(cfg.outPath())
+    );
+
+    System.out.println("\n✅ Shard uniti: " + cfg.outPath());
+  }
+}
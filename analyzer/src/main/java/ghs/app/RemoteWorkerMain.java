@@ -0,0 +1,119 @@
+package ghs.analyzer.app;
+
+import ghs.analyzer.cli.*;
+import ghs.analyzer.io.*;
+import ghs.analyzer.model.*;
+import ghs.analyzer.pipeline.*;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.*;
+import java.nio.file.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker remoto: si connette al coordinatore indicato da --coordinator, chiede un modulo alla
+ * volta (percorso relativo, risolto sul proprio --base) e restituisce i record con il
+ * framing di RecordFrames. Le altre opzioni sono quelle di Main e valgono per l'analisi.
+ * Un thread a parte manda un HEARTBEAT ogni HEARTBEAT_S secondi, così il coordinatore non
+ * scambia per perso un worker impegnato in un batch lungo.
+ */
+public final class RemoteWorkerMain {
+
+  private static final int CONNECT_ATTEMPTS = 30;
+
+  public static void main(String[] args) throws Exception {
+    AnalysisConfig cfg = AnalysisConfig.from(CliParser.parse(args));
+    if (cfg.coordinator().isBlank()) {
+      System.err.println("Uso: RemoteWorkerMain --coordinator host:porta [opzioni di Main]");
+      System.exit(2);
+    }
+    InetSocketAddress addr = ModuleCoordinator.address(cfg.coordinator());
+    Path baseDir = Paths.get(cfg.baseDir());
+
+    ScheduledExecutorService heartbeat = null;
+    try (Socket socket = connect(addr)) {
+      socket.setTcpNoDelay(true);
+      RecordFrames.Reader in = new RecordFrames.Reader(socket.getInputStream());
+      RecordFrames.Writer w = new RecordFrames.Writer(socket.getOutputStream());
+      heartbeat = heartbeat(w);
+      OutputSink out = new SocketOutputSink(w);
+      // Il progress lo registra il coordinatore dopo aver scritto i record
+      ModuleAnalyzer analyzer = Main.moduleAnalyzer(out, Main.workerProgress());
+      System.out.println("Connesso al coordinatore " + addr);
+
+      while (true) {
+        w.signal(RecordFrames.READY);
+        w.flush();
+        int type;
+        try {
+          type = in.next();
+        } catch (EOFException e) {
+          // Il coordinatore ha chiuso a lavoro finito prima di rispondere
+          break;
+        }
+        if (type == RecordFrames.NO_MORE) break;
+        if (type != RecordFrames.MODULE) throw new IOException(
+          "frame inatteso: " + type
+        );
+        Path module = baseDir.resolve(in.text());
+        try {
+          analyzer.analyzeModule(baseDir, module, cfg);
+          out.flush();
+          w.signal(RecordFrames.DONE);
+        } catch (OutOfMemoryError oom) {
+          // Heap compromesso: il coordinatore riassegna il modulo a un altro worker
+          w.signal(RecordFrames.OOM);
+          w.flush();
+          Runtime.getRuntime().halt(3);
+        } catch (Exception e) {
+          out.flush();
+          w.text(RecordFrames.ERROR, String.valueOf(e));
+        }
+        w.flush();
+      }
+    } finally {
+      if (heartbeat != null) heartbeat.shutdownNow();
+    }
+
+    System.out.println("\n✅ Worker terminato.");
+  }
+
+  /** HEARTBEAT periodico; i frame del Writer sono atomici, quindi si intercalano ai record. */
+  private static ScheduledExecutorService heartbeat(RecordFrames.Writer w) {
+    ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+      r -> {
+        Thread t = new Thread(r, "worker-heartbeat");
+        t.setDaemon(true);
+        return t;
+      }
+    );
+    timer.scheduleAtFixedRate(
+      () -> {
+        try {
+          w.signal(RecordFrames.HEARTBEAT);
+          w.flush();
+        } catch (IOException e) {
+          // Connessione chiusa: se ne accorge il thread principale
+        }
+      },
+      RecordFrames.HEARTBEAT_S,
+      RecordFrames.HEARTBEAT_S,
+      TimeUnit.SECONDS
+    );
+    return timer;
+  }
+
+  /** Riprova per qualche secondo: i worker possono partire prima del coordinatore. */
+  private static Socket connect(InetSocketAddress addr) throws Exception {
+    for (int i = 1; ; i++) {
+      try {
+        return new Socket(addr.getAddress(), addr.getPort());
+      } catch (ConnectException e) {
+        if (i >= CONNECT_ATTEMPTS) throw e;
+        Thread.sleep(1000);
+      }
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package ghs.analyzer.app;
+
+import ghs.analyzer.cli.*;
+import ghs.analyzer.io.*;
+import ghs.analyzer.model.*;
+import ghs.analyzer.pipeline.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * JVM figlia avviata da WorkerSupervisor: legge un modulo per riga da stdin e restituisce
+ * i record sul vecchio stdout (protocollo in StreamOutputSink). I log vanno su stderr.
+ */
+public final class WorkerMain {
+
+  public static void main(String[] args) throws Exception {
+    AnalysisConfig cfg = AnalysisConfig.from(CliParser.parse(args));
+    PrintStream protocol = new PrintStream(
+      new FileOutputStream(FileDescriptor.out),
+      false,
+      StandardCharsets.UTF_8
+    );
+    // Da qui System.out (log del ModuleAnalyzer) non tocca il canale dei record
+    System.setOut(System.err);
+
+    OutputSink out = new StreamOutputSink(protocol);
+    // Il progress lo registra il supervisore dopo aver scritto i record
+    ModuleAnalyzer analyzer = Main.moduleAnalyzer(out, Main.workerProgress());
+    Path baseDir = Paths.get(cfg.baseDir());
+    BufferedReader in = new BufferedReader(
+      new InputStreamReader(System.in, StandardCharsets.UTF_8)
+    );
+    for (String line; (line = in.readLine()) != null;) {
+      if (line.isBlank()) continue;
+      try {
+        analyzer.analyzeModule(baseDir, Paths.get(line), cfg);
+        out.flush();
+        protocol.println(StreamOutputSink.DONE);
+      } catch (OutOfMemoryError oom) {
+        // Heap compromesso: il supervisore riprova il modulo in un worker più grande
+        protocol.println(StreamOutputSink.OOM);
+        protocol.flush();
+        Runtime.getRuntime().halt(3);
+      } catch (Exception e) {
+        out.flush();
+        protocol.println(
+          StreamOutputSink.ERROR + String.valueOf(e).replace('\n', ' ')
+        );
+      }
+      protocol.flush();
+    }
+  }
+}
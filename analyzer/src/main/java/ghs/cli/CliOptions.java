@@ -28,5 +28,28 @@ int autoBatchHuge,
 int autoVisitedBig,
 int autoVisitedHuge,
 boolean autoFastHeuristic,
-Optional<Path> onlyFrom
+Optional<Path> onlyFrom,
+int moduleThreads,
+int moduleBaseMb,
+int moduleKbPerClass,
+int testThreads,
+boolean cgPerModule,
+String bfsEngine,
+int summaryMb,
+boolean cgCache,
+boolean incremental,
+boolean cgBounded,
+String cgAlgo,
+int cgThreads,
+int pipelineGraphs,
+int workers,
+String workerHeapsMb,
+String shard,
+String coordinator,
+boolean adaptiveBatch,
+int targetHeapPct,
+boolean bisectOom,
+boolean fixtures,
+boolean transitiveMocks,
+int workerTimeoutS
 ) {}
\ No newline at end of file
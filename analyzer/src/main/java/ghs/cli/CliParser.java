@@ -1,10 +1,19 @@
 package ghs.analyzer.cli;
 
+import ghs.analyzer.graph.CallGraphAlgorithms;
 import java.nio.file.*;
 import java.util.*;
 
 public final class CliParser {
 
+  /** Valori ammessi per bfsEngine. */
+  private static final List<String> BFS_ENGINES = List.of(
+    "sootup",
+    "compact",
+    "msbfs",
+    "summary"
+  );
+
   private CliParser() {}
 
   public static CliOptions parse(String[] args) {
@@ -59,6 +68,74 @@ public final class CliParser {
       .filter(s -> !s.isBlank())
       .map(Paths::get);
 
+    // Scheduler moduli paralleli (1 = sequenziale come prima)
+    int moduleThreads = getInt(m, "moduleThreads", 1);
+    int moduleBaseMb = getInt(m, "moduleBaseMb", 1536);
+    int moduleKbPerClass = getInt(m, "moduleKbPerClass", 64);
+
+    // Test del batch analizzati in parallelo sul call graph condiviso (1 = sequenziale)
+    int testThreads = getInt(m, "testThreads", 1);
+
+    // Un solo call graph per modulo, esteso batch dopo batch (più memoria, meno risoluzioni)
+    boolean cgPerModule = getBool(m, "cgPerModule", false);
+
+    // Motore BFS: sootup (CallGraph originale), compact (snapshot CSR a ID interi),
+    // msbfs (CSR con BFS multi-sorgente bit-parallela, 64 test per passata) oppure
+    // summary (CSR con riassunti di raggiungibilità per metodo riusati tra i test)
+    String bfsEngine = m.getOrDefault("bfsEngine", "sootup").trim().toLowerCase(Locale.ROOT);
+    if (!BFS_ENGINES.contains(bfsEngine)) throw new IllegalArgumentException(
+      "bfsEngine non valido: " + bfsEngine + " (atteso uno tra " + BFS_ENGINES + ")"
+    );
+
+    // Memoria massima dei riassunti di raggiungibilità per modulo (bfsEngine summary)
+    int summaryMb = getInt(m, "summaryMb", 512);
+
+    // Cache su disco degli archi del CG per modulo (target/analyzer-cache), riusata se le classi non cambiano
+    boolean cgCache = getBool(m, "cgCache", false);
+
+    // Rianalizza solo i test il cui bytecode raggiunto è cambiato, gli altri record sono ripresi dallo store
+    boolean incremental = getBool(m, "incremental", false);
+
+    // CG per batch limitato a maxDepth/pruneLibs: si risolvono solo i metodi che una BFS può espandere
+    boolean cgBounded = getBool(m, "cgBounded", false);
+
+    // Algoritmo del call graph: cha (default) oppure rta (meno archi virtuali, registrato nel cfgId)
+    String cgAlgo = CallGraphAlgorithms.check(
+      m.getOrDefault("cgAlgo", "cha").trim().toLowerCase(Locale.ROOT)
+    );
+
+    // Thread per la costruzione CHA del batch (1 = sequenziale; stesso grafo in ogni caso)
+    int cgThreads = getInt(m, "cgThreads", 1);
+
+    // Call graph vivi al massimo con costruzione del batch successivo in parallelo all'analisi (1 = in sequenza)
+    int pipelineGraphs = getInt(m, "pipelineGraphs", 1);
+
+    // Moduli analizzati in JVM figlie (0 = nello stesso processo); heap dei worker in MB, crescenti per i retry
+    int workers = getInt(m, "workers", 0);
+    String workerHeapsMb = m.getOrDefault("workerHeapsMb", "1536,4096,12288");
+
+    // Porzione del corpus per questo host, "i/n" con i da 1 a n (vuoto = tutti i moduli); i moduli sono ripartiti per costo stimato
+    String shard = m.getOrDefault("shard", "").trim();
+
+    // Coordinatore TCP ("host:porta" o "porta" su loopback): Main serve la coda dei moduli ai RemoteWorkerMain, che lo usano per connettersi (precede workers)
+    String coordinator = m.getOrDefault("coordinator", "").trim();
+
+    // Batch adattivi: dimensione regolata dopo ogni batch sull'occupazione dell'heap dopo GC (obiettivo targetHeapPct), senza System.gc() espliciti
+    boolean adaptiveBatch = getBool(m, "adaptiveBatch", false);
+    int targetHeapPct = getInt(m, "targetHeapPct", 60);
+
+    // Su OutOfMemoryError il batch si divide a metà fino al singolo test invece di abbandonare il modulo; i test che non entrano da soli vanno in oom-tests.txt
+    boolean bisectOom = getBool(m, "bisectOom", false);
+
+    // Unisce ai test la raggiungibilità delle fixture della classe (@Before, setUp...)
+    boolean fixtures = getBool(m, "fixtures", false);
+
+    // Uso di mock anche indiretto: qualsiasi classe di mocking raggiunta entro maxDepth
+    boolean transitiveMocks = getBool(m, "transitiveMocks", false);
+
+    // Coordinatore: un worker senza heartbeat per workerTimeoutS secondi (almeno tre heartbeat) è dato per perso e il suo modulo riassegnato; 0 = nessun limite
+    int workerTimeoutS = getInt(m, "workerTimeoutS", 120);
+
     return new CliOptions(
       base,
       out,
@@ -82,7 +159,30 @@ public final class CliParser {
       autoVisitedBig,
       autoVisitedHuge,
       autoFastHeuristic,
-      onlyFrom
+      onlyFrom,
+      moduleThreads,
+      moduleBaseMb,
+      moduleKbPerClass,
+      testThreads,
+      cgPerModule,
+      bfsEngine,
+      summaryMb,
+      cgCache,
+      incremental,
+      cgBounded,
+      cgAlgo,
+      cgThreads,
+      pipelineGraphs,
+      workers,
+      workerHeapsMb,
+      shard,
+      coordinator,
+      adaptiveBatch,
+      targetHeapPct,
+      bisectOom,
+      fixtures,
+      transitiveMocks,
+      workerTimeoutS
     );
   }
 
@@ -0,0 +1,61 @@
+package ghs.analyzer.discovery;
+
+import ghs.analyzer.io.ClassInventory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Collectors;
+import sootup.java.core.JavaSootClass;
+import sootup.java.core.JavaSootMethod;
+import sootup.java.core.views.JavaView;
+
+/**
+ * Discovery che legge prima i byte delle class file (in parallelo) e risolve in SootUp solo
+ * le classi con almeno un metodo annotato come test. JUnitTestDiscovery chiede a SootUp
+ * tutte le classi della view, comprese prod e JRT, prima di trovare il primo test.
+ * Classi e metodi escono nello stesso ordine di JUnitTestDiscovery (prod, poi test), così
+ * i batch non cambiano. Una class file che non si riesce a leggere non ferma la discovery:
+ * la classe si risolve e si filtra metodo per metodo come in JUnitTestDiscovery.
+ */
+public final class ClassFileTestDiscovery implements TestDiscovery {
+
+  private final TestDiscovery fallback = new JUnitTestDiscovery();
+
+  @Override
+  public List<JavaSootMethod> discover(JavaView view) {
+    return fallback.discover(view);
+  }
+
+  @Override
+  public List<JavaSootMethod> discover(JavaView view, ClassInventory inventory) {
+    List<ClassInventory.Entry> all = new ArrayList<>(inventory.prodEntries());
+    all.addAll(inventory.testEntries());
+    List<ClassInventory.Entry> candidates = all
+      .parallelStream()
+      .filter(e -> !e.file().endsWith("module-info.class"))
+      .filter(e -> {
+        try {
+          return TestMarkerScanner.hasTestMethod(Files.readAllBytes(e.file()));
+        } catch (IOException ex) {
+          // File non leggibile: decide la risoluzione completa, come per un file anomalo
+          return true;
+        }
+      })
+      .collect(Collectors.toList());
+
+    List<JavaSootMethod> out = new ArrayList<>();
+    Set<String> seen = new HashSet<>();
+    for (ClassInventory.Entry e : candidates) {
+      // Stessa FQN in prod e test: la view risolve comunque la prima
+      if (!seen.add(e.fqn())) continue;
+      Optional<JavaSootClass> cls = view.getClass(
+        view.getIdentifierFactory().getClassType(e.fqn())
+      );
+      if (cls.isEmpty()) continue;
+      for (JavaSootMethod m : cls.get().getMethods()) {
+        if (JUnitTestDiscovery.isJUnitOrTestNGTest(m)) out.add(m);
+      }
+    }
+    return out;
+  }
+}
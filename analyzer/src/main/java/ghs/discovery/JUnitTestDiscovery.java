@@ -17,7 +17,7 @@ public final class JUnitTestDiscovery implements TestDiscovery {
       .collect(Collectors.toList());
   }
 
-  private static boolean isJUnitOrTestNGTest(JavaSootMethod m) {
+  static boolean isJUnitOrTestNGTest(JavaSootMethod m) {
     for (AnnotationUsage au : m.getAnnotations()) {
       String ann = au.getAnnotation().getFullyQualifiedName();
       if (
@@ -1,9 +1,15 @@
 package ghs.analyzer.discovery;
 
+import ghs.analyzer.io.ClassInventory;
 import java.util.List;
 import sootup.java.core.JavaSootMethod;
 import sootup.java.core.views.JavaView;
 
 public interface TestDiscovery {
   List<JavaSootMethod> discover(JavaView view);
+
+  /** Con l'inventario del modulo un'implementazione può evitare di risolvere tutte le classi. */
+  default List<JavaSootMethod> discover(JavaView view, ClassInventory inventory) {
+    return discover(view);
+  }
 }
@@ -0,0 +1,118 @@
+package ghs.analyzer.discovery;
+
+import ghs.analyzer.graph.ClassIndex;
+import java.util.*;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.types.ClassType;
+import sootup.java.core.AnnotationUsage;
+import sootup.java.core.JavaSootClass;
+import sootup.java.core.JavaSootMethod;
+import sootup.java.core.views.JavaView;
+
+/**
+ * Metodi di setup eseguiti prima dei test di ogni classe di test: @Before/@BeforeClass
+ * (JUnit 4), @BeforeEach/@BeforeAll (JUnit 5), @BeforeMethod/@BeforeClass (TestNG) e,
+ * nelle classi che estendono junit.framework.TestCase, setUp() senza argomenti (JUnit 3),
+ * anche ereditati da superclassi di progetto. Un metodo ridefinito nella sottoclasse
+ * nasconde quello della superclasse, come nei runner.
+ */
+public final class TestFixtures {
+
+  public static final TestFixtures NONE = new TestFixtures(Map.of());
+
+  private static final Set<String> ANNOTATIONS = Set.of(
+    "org.junit.Before",
+    "org.junit.BeforeClass",
+    "org.junit.jupiter.api.BeforeEach",
+    "org.junit.jupiter.api.BeforeAll",
+    "org.testng.annotations.BeforeMethod",
+    "org.testng.annotations.BeforeClass"
+  );
+
+  private static final String TEST_CASE = "junit.framework.TestCase";
+
+  private final Map<String, List<MethodSignature>> byClass;
+
+  private TestFixtures(Map<String, List<MethodSignature>> byClass) {
+    this.byClass = byClass;
+  }
+
+  /** Fixture delle classi che dichiarano i test (solo quelle che ne hanno). */
+  public static TestFixtures find(
+    JavaView view,
+    List<JavaSootMethod> tests,
+    ClassIndex classes
+  ) {
+    Map<String, List<MethodSignature>> byClass = new HashMap<>();
+    Set<ClassType> done = new HashSet<>();
+    for (JavaSootMethod tm : tests) {
+      ClassType type = tm.getSignature().getDeclClassType();
+      if (!done.add(type)) continue;
+      List<MethodSignature> found = new ArrayList<>();
+      Set<String> overridden = new HashSet<>();
+      boolean junit3 = extendsTestCase(view, type);
+      for (
+        ClassType t = type;
+        t != null && classes.isProject(t);
+        t = view
+          .getClass(t)
+          .flatMap(JavaSootClass::getSuperclass)
+          .orElse(null)
+      ) {
+        Optional<JavaSootClass> cls = view.getClass(t);
+        if (cls.isEmpty()) break;
+        for (JavaSootMethod m : cls.get().getMethods()) {
+          String sub = m.getSignature().getSubSignature().toString();
+          // Un metodo della sottoclasse nasconde quello con la stessa firma della superclasse
+          if (overridden.add(sub) && isFixture(m, junit3)) found.add(
+            m.getSignature()
+          );
+        }
+      }
+      if (!found.isEmpty()) byClass.put(type.getFullyQualifiedName(), found);
+    }
+    return new TestFixtures(byClass);
+  }
+
+  /** Fixture della classe di test (lista vuota se non ne ha). */
+  public List<MethodSignature> of(String testClass) {
+    return byClass.getOrDefault(testClass, List.of());
+  }
+
+  public boolean isEmpty() {
+    return byClass.isEmpty();
+  }
+
+  /** Numero di classi di test con almeno una fixture. */
+  public int classCount() {
+    return byClass.size();
+  }
+
+  /** true se la classe estende junit.framework.TestCase, anche tramite altre superclassi. */
+  private static boolean extendsTestCase(JavaView view, ClassType type) {
+    for (
+      ClassType t = type;
+      t != null;
+      t = view.getClass(t).flatMap(JavaSootClass::getSuperclass).orElse(null)
+    ) {
+      // Basta il nome: la classe di JUnit può mancare dalla view
+      if (TEST_CASE.equals(t.getFullyQualifiedName())) return true;
+    }
+    return false;
+  }
+
+  private static boolean isFixture(JavaSootMethod m, boolean junit3) {
+    if (m.isAbstract()) return false;
+    for (AnnotationUsage au : m.getAnnotations()) {
+      if (ANNOTATIONS.contains(au.getAnnotation().getFullyQualifiedName())) {
+        return true;
+      }
+    }
+    return (
+      junit3 &&
+      m.getName().equals("setUp") &&
+      m.getParameterCount() == 0 &&
+      !m.isStatic()
+    );
+  }
+}
@@ -0,0 +1,145 @@
+package ghs.analyzer.discovery;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lettura minima di una class file: constant pool e RuntimeVisibleAnnotations dei metodi,
+ * senza costruire nulla. Dice solo se almeno un metodo porta un'annotazione di test
+ * (stessi marker di JUnitTestDiscovery, in forma di descrittore).
+ */
+final class TestMarkerScanner {
+
+  private static final String JUNIT4 = "Lorg/junit/Test;";
+  private static final String JUPITER = "Lorg/junit/jupiter/api/Test;";
+  private static final String PARAMETERIZED =
+    "Lorg/junit/jupiter/params/ParameterizedTest;";
+  private static final String TESTNG = "Lorg/testng/annotations/Test";
+
+  private TestMarkerScanner() {}
+
+  /** true se la classe ha un metodo annotato come test, o se il file non è leggibile. */
+  static boolean hasTestMethod(byte[] classFile) {
+    try {
+      return scan(ByteBuffer.wrap(classFile));
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      // File anomalo: decide la risoluzione completa
+      return true;
+    }
+  }
+
+  private static boolean scan(ByteBuffer in) {
+    if (in.getInt() != 0xCAFEBABE) return true;
+    in.getShort(); // minor
+    in.getShort(); // major
+    int count = in.getShort() & 0xFFFF;
+    String[] utf8 = new String[count];
+    boolean[] marker = new boolean[count];
+    boolean anyMarker = false;
+    for (int i = 1; i < count; i++) {
+      int tag = in.get();
+      switch (tag) {
+        case 1 -> {
+          int len = in.getShort() & 0xFFFF;
+          int pos = in.position();
+          // Solo descrittori di tipo e nomi di attributo: il resto si salta
+          if (len > 0 && (in.get(pos) == 'L' || in.get(pos) == 'R')) {
+            String s = new String(
+              in.array(),
+              pos,
+              len,
+              StandardCharsets.ISO_8859_1
+            );
+            utf8[i] = s;
+            if (isMarker(s)) {
+              marker[i] = true;
+              anyMarker = true;
+            }
+          }
+          in.position(pos + len);
+        }
+        case 7, 8, 16, 19, 20 -> in.position(in.position() + 2);
+        case 15 -> in.position(in.position() + 3);
+        case 3, 4, 9, 10, 11, 12, 17, 18 -> in.position(in.position() + 4);
+        case 5, 6 -> {
+          in.position(in.position() + 8);
+          i++;
+        }
+        default -> {
+          return true;
+        }
+      }
+    }
+    // Nessun descrittore di test nel constant pool: nessun metodo può esserne annotato
+    if (!anyMarker) return false;
+
+    in.position(in.position() + 6); // access, this, super
+    int interfaces = in.getShort() & 0xFFFF;
+    in.position(in.position() + 2 * interfaces);
+    int fields = in.getShort() & 0xFFFF;
+    for (int f = 0; f < fields; f++) {
+      in.position(in.position() + 6);
+      skipAttributes(in);
+    }
+    int methods = in.getShort() & 0xFFFF;
+    for (int m = 0; m < methods; m++) {
+      in.position(in.position() + 6);
+      int attrs = in.getShort() & 0xFFFF;
+      for (int a = 0; a < attrs; a++) {
+        int name = in.getShort() & 0xFFFF;
+        int len = in.getInt();
+        int end = in.position() + len;
+        if ("RuntimeVisibleAnnotations".equals(utf8[name])) {
+          int n = in.getShort() & 0xFFFF;
+          for (int k = 0; k < n; k++) {
+            if (marker[in.getShort(in.position()) & 0xFFFF]) return true;
+            skipAnnotation(in);
+          }
+        }
+        in.position(end);
+      }
+    }
+    return false;
+  }
+
+  private static boolean isMarker(String s) {
+    return (
+      JUNIT4.equals(s) ||
+      JUPITER.equals(s) ||
+      PARAMETERIZED.equals(s) ||
+      s.startsWith(TESTNG)
+    );
+  }
+
+  private static void skipAttributes(ByteBuffer in) {
+    int attrs = in.getShort() & 0xFFFF;
+    for (int a = 0; a < attrs; a++) {
+      in.position(in.position() + 2);
+      int len = in.getInt();
+      in.position(in.position() + len);
+    }
+  }
+
+  private static void skipAnnotation(ByteBuffer in) {
+    in.position(in.position() + 2); // type
+    int pairs = in.getShort() & 0xFFFF;
+    for (int p = 0; p < pairs; p++) {
+      in.position(in.position() + 2); // nome
+      skipElementValue(in);
+    }
+  }
+
+  private static void skipElementValue(ByteBuffer in) {
+    int tag = in.get();
+    switch (tag) {
+      case 'e' -> in.position(in.position() + 4);
+      case '@' -> skipAnnotation(in);
+      case '[' -> {
+        int n = in.getShort() & 0xFFFF;
+        for (int i = 0; i < n; i++) skipElementValue(in);
+      }
+      default -> in.position(in.position() + 2);
+    }
+  }
+}
@@ -6,26 +6,43 @@ import sootup.core.signatures.MethodSignature;
 
 public final class BfsTraverser {
 
+  /** Riceve ogni metodo raggiunto, in ordine di scoperta, con la distanza dalla partenza. */
+  public interface Visitor {
+    void visit(MethodSignature m, int depth);
+  }
+
   public Map<MethodSignature, Integer> bfs(
     CallGraph cg,
     MethodSignature start,
     int maxDepth,
-    Set<String> projectAllClasses,
+    ClassIndex classes,
     boolean pruneLibs,
     int maxVisited
+  ) {
+    return bfs(cg, start, maxDepth, classes, pruneLibs, maxVisited, null);
+  }
+
+  /** Come bfs, notificando visitor (può essere null) durante la visita stessa. */
+  public Map<MethodSignature, Integer> bfs(
+    CallGraph cg,
+    MethodSignature start,
+    int maxDepth,
+    ClassIndex classes,
+    boolean pruneLibs,
+    int maxVisited,
+    Visitor visitor
   ) {
     Map<MethodSignature, Integer> dist = new LinkedHashMap<>();
     ArrayDeque<MethodSignature> q = new ArrayDeque<>();
     dist.put(start, 0);
+    if (visitor != null) visitor.visit(start, 0);
     q.add(start);
     while (!q.isEmpty()) {
       if (dist.size() >= maxVisited) break;
       MethodSignature u = q.poll();
       int d = dist.get(u);
       if (d >= maxDepth) continue;
-      boolean uIsProject = projectAllClasses.contains(
-        u.getDeclClassType().getFullyQualifiedName()
-      );
+      boolean uIsProject = classes.isProject(u.getDeclClassType());
       if (pruneLibs && !uIsProject && d >= 1) continue;
       cg
         .callsFrom(u)
@@ -33,6 +50,7 @@ public final class BfsTraverser {
           MethodSignature v = call.getTargetMethodSignature();
           if (!dist.containsKey(v)) {
             dist.put(v, d + 1);
+            if (visitor != null) visitor.visit(v, d + 1);
             if (dist.size() < maxVisited) q.add(v);
           }
         });
@@ -0,0 +1,83 @@
+package ghs.analyzer.graph;
+
+import java.util.*;
+import sootup.callgraph.CallGraph;
+import sootup.callgraph.ClassHierarchyAnalysisAlgorithm;
+import sootup.callgraph.MutableCallGraph;
+import sootup.core.model.SootClass;
+import sootup.core.model.SootMethod;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.views.View;
+
+/**
+ * CHA guidata dalla domanda: il worklist procede per livelli dagli entry point e risolve
+ * le chiamate di un metodo solo se la sua distanza minima da un entry point è sotto
+ * maxDepth (e, con pruneLibs, se è di progetto oppure è un entry point), cioè solo se la
+ * BFS di almeno un test del batch potrebbe espanderlo. Gli entry point si risolvono
+ * sempre, anche con maxDepth 0. I metodi di frontiera restano nodi senza archi uscenti.
+ * La distanza da un test non è mai inferiore a quella minima, quindi ogni BFS trova gli
+ * stessi archi, nello stesso ordine, del CG completo.
+ *
+ * <p>I metodi non risolti non hanno i loro archi: il grafo non va riusato tra batch né
+ * salvato in cache (cgPerModule e cgCache usano il CHA completo).
+ */
+public final class BoundedChaAlgorithm extends ClassHierarchyAnalysisAlgorithm {
+
+  private final ClassIndex classes;
+  private final int maxDepth;
+  private final boolean pruneLibs;
+  private int resolved = 0;
+
+  public BoundedChaAlgorithm(
+    View view,
+    ClassIndex classes,
+    int maxDepth,
+    boolean pruneLibs
+  ) {
+    super(view);
+    this.classes = classes;
+    this.maxDepth = maxDepth;
+    this.pruneLibs = pruneLibs;
+  }
+
+  public CallGraph build(List<MethodSignature> entries) {
+    List<MethodSignature> clinits = getClinitFromEntryPoints(entries);
+    MutableCallGraph cg = initializeCallGraph(entries, clinits);
+
+    Set<MethodSignature> seen = new HashSet<>(entries);
+    seen.addAll(clinits);
+    List<MethodSignature> level = new ArrayList<>(seen);
+    Deque<MethodSignature> targets = new ArrayDeque<>();
+    // Il livello 0 si risolve sempre: l'uso di mock si legge dagli archi del test
+    for (int d = 0; d < Math.max(1, maxDepth) && !level.isEmpty(); d++) {
+      List<MethodSignature> next = new ArrayList<>();
+      for (MethodSignature m : level) {
+        if (
+          pruneLibs && d >= 1 && !classes.isProject(m.getDeclClassType())
+        ) continue;
+        SootClass cls = view.getClass(m.getDeclClassType()).orElse(null);
+        if (cls == null || cls.isLibraryClass()) continue;
+        preProcessingMethod(m, targets, cg);
+        if (!cg.containsMethod(m)) cg.addMethod(m);
+        SootMethod sm = (SootMethod) cls
+          .getMethod(m.getSubSignature())
+          .orElse(null);
+        resolveAllCallsFromSourceMethod(sm, cg, targets);
+        resolveAllImplicitCallsFromSourceMethod(sm, cg, targets);
+        postProcessingMethod(m, targets, cg);
+        resolved++;
+        while (!targets.isEmpty()) {
+          MethodSignature t = targets.pop();
+          if (seen.add(t)) next.add(t);
+        }
+      }
+      level = next;
+    }
+    return cg;
+  }
+
+  /** Metodi di cui sono state risolte le chiamate (per il log). */
+  public int resolvedMethods() {
+    return resolved;
+  }
+}
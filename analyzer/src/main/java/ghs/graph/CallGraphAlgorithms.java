@@ -0,0 +1,42 @@
+package ghs.analyzer.graph;
+
+import java.util.List;
+import sootup.callgraph.CallGraphAlgorithm;
+import sootup.callgraph.ClassHierarchyAnalysisAlgorithm;
+import sootup.callgraph.RapidTypeAnalysisAlgorithm;
+import sootup.core.views.View;
+
+/**
+ * Algoritmi di costruzione del call graph selezionabili con cgAlgo. CHA collega ogni
+ * chiamata virtuale a tutti gli override della gerarchia; RTA solo a quelli dei tipi
+ * istanziati nei metodi raggiungibili, con meno archi ma un grafo che dipende dagli
+ * entry point. SootUp 2.0 non offre VTA né altri algoritmi a propagazione di tipi.
+ */
+public final class CallGraphAlgorithms {
+
+  public static final String CHA = "cha";
+  public static final String RTA = "rta";
+
+  /** Nomi supportati, nell'ordine usato dal report di confronto. */
+  public static final List<String> ALL = List.of(CHA, RTA);
+
+  private CallGraphAlgorithms() {}
+
+  public static CallGraphAlgorithm create(String name, View view) {
+    if (RTA.equals(check(name))) return new RapidTypeAnalysisAlgorithm(view);
+    return new ClassHierarchyAnalysisAlgorithm(view);
+  }
+
+  /** Archi uscenti che dipendono solo dalla view (CG di modulo, cache, CG limitato). */
+  public static boolean isCha(String name) {
+    return CHA.equals(check(name));
+  }
+
+  /** name se è tra quelli supportati (ALL). */
+  public static String check(String name) {
+    if (ALL.contains(name)) return name;
+    throw new IllegalArgumentException(
+      "cgAlgo non valido: " + name + " (atteso uno tra " + ALL + ")"
+    );
+  }
+}
@@ -12,9 +12,7 @@ public interface CallGraphAnalyzer {
     String cfgId,
     sootup.callgraph.CallGraph cg,
     JavaSootMethod tm,
-    Set<String> projectProdClasses,
-    Set<String> projectTestClasses,
-    Set<String> projectAllClasses,
+    ClassIndex classes,
     int maxDepth,
     boolean pruneLibs,
     int maxVisited,
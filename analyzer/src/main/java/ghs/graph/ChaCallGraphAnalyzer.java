@@ -3,7 +3,6 @@ package ghs.analyzer.graph;
 import ghs.analyzer.heuristics.*;
 import ghs.analyzer.model.*;
 import java.util.*;
-import java.util.stream.Collectors;
 import sootup.core.signatures.MethodSignature;
 import sootup.java.core.JavaSootMethod;
 
@@ -23,6 +22,33 @@ public final class ChaCallGraphAnalyzer implements CallGraphAnalyzer {
     this.scorer = scorer;
   }
 
+  /** Metodi raggiunti dalle fixture di una classe di test (distanza minima) e uso di mock. */
+  public record FixtureReach(
+    Map<MethodSignature, Integer> distance,
+    boolean usesMocks
+  ) {}
+
+  /** BFS dalle fixture, ognuna radice a distanza 0 come il test: una volta per classe. */
+  public FixtureReach fixtureReach(
+    sootup.callgraph.CallGraph cg,
+    List<MethodSignature> fixtures,
+    ClassIndex classes,
+    int maxDepth,
+    boolean pruneLibs,
+    int maxVisited
+  ) {
+    Map<MethodSignature, Integer> distance = new LinkedHashMap<>();
+    boolean usesMocks = false;
+    for (MethodSignature f : fixtures) {
+      if (!cg.containsMethod(f)) continue;
+      bfs
+        .bfs(cg, f, maxDepth, classes, pruneLibs, maxVisited)
+        .forEach((m, d) -> distance.merge(m, d, Math::min));
+      usesMocks |= mocks.usesMocks(cg, f);
+    }
+    return new FixtureReach(distance, usesMocks);
+  }
+
   @Override
   public TestRecord analyzeOne(
     String repoName,
@@ -30,15 +56,60 @@ public final class ChaCallGraphAnalyzer implements CallGraphAnalyzer {
     String cfgId,
     sootup.callgraph.CallGraph cg,
     JavaSootMethod tm,
-    Set<String> projectProdClasses,
-    Set<String> projectTestClasses,
-    Set<String> projectAllClasses,
+    ClassIndex classes,
     int maxDepth,
     boolean pruneLibs,
     int maxVisited,
     java.util.function.Function<String, String> simpleName,
     FocalClassHeuristic classHeu,
     FocalMethodHeuristic methodHeu
+  ) {
+    return analyzeOne(
+      repoName,
+      module,
+      cfgId,
+      cg,
+      tm,
+      classes,
+      maxDepth,
+      pruneLibs,
+      maxVisited,
+      simpleName,
+      classHeu,
+      methodHeu,
+      null,
+      null,
+      false,
+      false
+    );
+  }
+
+  /**
+   * Come analyzeOne, con la raggiungibilità delle fixture della classe (può essere null)
+   * unita a quella del test prima di focal e statistiche: i metodi raggiunti solo dal test
+   * vengono prima, a parità di distanza. Con un memo (può essere null) i test senza fixture
+   * con gli stessi callee di uno già analizzato nel batch non rifanno la BFS. Con
+   * transitiveMocks conta come uso di mock qualsiasi metodo di mocking entro la profondità,
+   * non solo le chiamate dirette del test. Le classi raggiunte, che servono solo alle
+   * impronte, si raccolgono solo con incremental.
+   */
+  public TestRecord analyzeOne(
+    String repoName,
+    java.nio.file.Path module,
+    String cfgId,
+    sootup.callgraph.CallGraph cg,
+    JavaSootMethod tm,
+    ClassIndex classes,
+    int maxDepth,
+    boolean pruneLibs,
+    int maxVisited,
+    java.util.function.Function<String, String> simpleName,
+    FocalClassHeuristic classHeu,
+    FocalMethodHeuristic methodHeu,
+    FixtureReach fixture,
+    TraversalMemo memo,
+    boolean transitiveMocks,
+    boolean incremental
   ) {
     MethodSignature tSig = tm.getSignature();
     String testClass = tSig.getDeclClassType().getFullyQualifiedName();
@@ -48,96 +119,75 @@ public final class ChaCallGraphAnalyzer implements CallGraphAnalyzer {
       testClass
     );
 
-    Map<MethodSignature, Integer> distance = bfs.bfs(
-      cg,
-      tSig,
-      maxDepth,
-      projectAllClasses,
-      pruneLibs,
-      maxVisited
-    );
-
-    List<MethodSignature> projectTargets = distance
-      .keySet()
-      .stream()
-      .filter(ms ->
-        projectProdClasses.contains(
-          ms.getDeclClassType().getFullyQualifiedName()
-        )
-      )
-      .collect(Collectors.toList());
-
-    Optional<MethodSignature> byName = projectTargets
-      .stream()
-      .filter(ms ->
-        ms
-          .getDeclClassType()
-          .getFullyQualifiedName()
-          .endsWith('.' + simpleName.apply(candidateFocalClass))
-      )
-      .min(Comparator.comparingInt(distance::get));
-
-    Optional<String> byMinDistanceClass = projectTargets
-      .stream()
-      .collect(
-        Collectors.groupingBy(
-          ms -> ms.getDeclClassType().getFullyQualifiedName(),
-          Collectors.mapping(
-            distance::get,
-            Collectors.minBy(Integer::compareTo)
-          )
-        )
-      )
-      .entrySet()
-      .stream()
-      .sorted(Comparator.comparingInt(e -> e.getValue().orElse(999)))
-      .map(Map.Entry::getKey)
-      .findFirst();
-
-    String focalClassFqn = byName
-      .map(ms -> ms.getDeclClassType().getFullyQualifiedName())
-      .orElse(byMinDistanceClass.orElse(candidateFocalClass));
+    List<MethodSignature> memoKey = memo != null && fixture == null
+      ? memo.key(tSig)
+      : null;
+    TraversalMemo.Entry memoed = memoKey != null
+      ? memo.lookup(memoKey, tSig.getDeclClassType())
+      : null;
+    if (memoed != null) {
+      TestRecord copy = memoed.record(
+        candidateFocalClass,
+        repoName,
+        module.toString(),
+        cfgId,
+        testClass,
+        testMethod
+      );
+      if (copy != null) {
+        memo.release(memoKey);
+        return copy;
+      }
+    }
 
-    List<MethodSignature> focalClassMethods = projectTargets
-      .stream()
-      .filter(ms ->
-        ms.getDeclClassType().getFullyQualifiedName().equals(focalClassFqn)
-      )
-      .sorted(Comparator.comparingInt(distance::get))
-      .collect(Collectors.toList());
+    // Statistiche, focal e mock in un passaggio: durante la BFS, o sulla mappa se va
+    // composta con memo o fixture
+    ReachStats stats = new ReachStats(
+      classes,
+      mocks,
+      classes.prodBySimpleName(simpleName.apply(candidateFocalClass)),
+      transitiveMocks,
+      incremental
+    );
+    Map<MethodSignature, Integer> distance;
+    if (memoed == null && fixture == null) {
+      distance = bfs.bfs(cg, tSig, maxDepth, classes, pruneLibs, maxVisited, stats);
+    } else {
+      distance = memoed != null
+        ? memoed.distanceFrom(tSig)
+        : bfs.bfs(cg, tSig, maxDepth, classes, pruneLibs, maxVisited);
+      if (fixture != null) fixture
+        .distance()
+        .forEach((m, d) -> distance.merge(m, d, Math::min));
+      stats.replay(distance);
+    }
 
+    String focalClassFqn = stats.focalClass(candidateFocalClass);
+    List<MethodSignature> focalClassMethods = stats.methodsOf(
+      focalClassFqn,
+      distance
+    );
     Optional<MethodSignature> focalMethodSig = methodHeu.selectFocalMethod(
       focalClassFqn,
       focalClassMethods
     );
 
-    java.util.Set<String> uniqueProjectClasses = projectTargets
-      .stream()
-      .map(ms -> ms.getDeclClassType().getFullyQualifiedName())
-      .collect(Collectors.toSet());
-    long callsToFocal = focalClassMethods.size();
-    long callsToOtherProjectClasses = projectTargets.size() - callsToFocal;
-    long callsToLibraries = distance
-      .keySet()
-      .stream()
-      .filter(
-        ms ->
-          !projectProdClasses.contains(
-            ms.getDeclClassType().getFullyQualifiedName()
-          ) &&
-          !projectTestClasses.contains(
-            ms.getDeclClassType().getFullyQualifiedName()
-          )
-      )
-      .count();
-    boolean usesMocks = mocks.usesMocks(cg, tSig);
+    int projectTargets = stats.projectTargets();
+    int callsToFocal = focalClassMethods.size();
+    int callsToOtherProjectClasses = projectTargets - callsToFocal;
+    // Senza profondità né visite la BFS non arriva ai callee: si guardano gli archi
+    boolean calleesVisited = maxDepth >= 1 && maxVisited > 1;
+    boolean usesMocks =
+      stats.mockCalls() ||
+      (!calleesVisited && mocks.usesMocks(cg, tSig)) ||
+      (fixture != null && fixture.usesMocks());
     double score = scorer.score(
-      projectTargets.size(),
-      (int) callsToOtherProjectClasses,
+      projectTargets,
+      callsToOtherProjectClasses,
       usesMocks
     );
 
-    return new TestRecord(
+    TestRecord record = new TestRecord(
       repoName,
       module.toString(),
       cfgId,
@@ -146,15 +196,26 @@ public final class ChaCallGraphAnalyzer implements CallGraphAnalyzer {
       focalClassFqn,
       focalMethodSig.map(MethodSignature::toString).orElse(""),
       new CgStats(
-        projectTargets.size(),
-        (int) callsToFocal,
-        (int) callsToOtherProjectClasses,
-        (int) callsToLibraries,
-        uniqueProjectClasses.size(),
-        distance.values().stream().mapToInt(i -> i).max().orElse(0)
+        projectTargets,
+        callsToFocal,
+        callsToOtherProjectClasses,
+        stats.callsToLibraries(),
+        stats.uniqueProjectClasses(),
+        stats.maxDepthVisited()
       ),
       usesMocks,
-      score
+      score,
+      stats.reachedClasses()
+    );
+    if (memoed != null) memoed.putRecord(candidateFocalClass, record);
+    else if (memoKey != null) memo.store(
+      memoKey,
+      tSig,
+      distance,
+      candidateFocalClass,
+      record
     );
+    if (memoKey != null) memo.release(memoKey);
+    return record;
   }
 }
@@ -0,0 +1,169 @@
+package ghs.analyzer.graph;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import sootup.core.types.ClassType;
+
+/**
+ * Indice delle classi di un modulo con ID interi: le classi di progetto hanno gli ID
+ * 0..projectClassCount()-1 e un tag prod/test in un array di byte, i tipi di libreria
+ * ricevono un ID alla prima richiesta. L'FQN di un ClassType si costruisce una volta sola;
+ * dopo, id() è una lookup sul ClassType (hash già calcolato da SootUp) e l'appartenenza
+ * una lettura di array. Thread-safe.
+ *
+ * <p>Sul CG SootUp resta quindi una lookup per metodo visitato: i nodi di un CG SootUp
+ * sono MethodSignature e non hanno dove tenere un ID. Gli ID per nodo stanno in
+ * CompactCallGraph, che li ricava da qui una volta per snapshot e nella BFS legge solo
+ * array.
+ *
+ * <p>Un secondo indice va dal nome semplice alle classi prod con quel nome: il match per
+ * nome della focal class e la validazione della modalità FAST sono una lookup invece di un
+ * endsWith su ogni classe raggiunta.
+ */
+public final class ClassIndex {
+
+  public static final byte LIB = 0;
+  public static final byte PROD = 1;
+  public static final byte TEST = 2;
+
+  private static final int[] NO_IDS = new int[0];
+
+  private final String[] names;
+  private final byte[] kinds;
+  private final Map<String, Integer> projectIds;
+  /** Nome semplice → ID delle classi prod in un package (crescenti, quindi alfabetici). */
+  private final Map<String, int[]> prodBySimpleName;
+  private final Map<ClassType, Integer> typeIds = new ConcurrentHashMap<>();
+  private final AtomicInteger nextLibId;
+
+  private ClassIndex(String[] names, byte[] kinds) {
+    this.names = names;
+    this.kinds = kinds;
+    this.projectIds = new HashMap<>(names.length * 2);
+    for (int i = 0; i < names.length; i++) projectIds.put(names[i], i);
+    Map<String, List<Integer>> bySimple = new HashMap<>();
+    for (int i = 0; i < names.length; i++) {
+      int dot = names[i].lastIndexOf('.');
+      if (kinds[i] == PROD && dot >= 0) bySimple
+        .computeIfAbsent(names[i].substring(dot + 1), k -> new ArrayList<>(1))
+        .add(i);
+    }
+    this.prodBySimpleName = new HashMap<>(bySimple.size() * 2);
+    bySimple.forEach((k, ids) ->
+      prodBySimpleName.put(k, ids.stream().mapToInt(Integer::intValue).toArray())
+    );
+    this.nextLibId = new AtomicInteger(names.length);
+  }
+
+  /** Le classi presenti sia in prod sia in test contano come prod. */
+  public static ClassIndex of(Set<String> prodFqns, Set<String> testFqns) {
+    TreeMap<String, Byte> all = new TreeMap<>();
+    for (String fqn : testFqns) all.put(fqn, TEST);
+    for (String fqn : prodFqns) all.put(fqn, PROD);
+    String[] names = new String[all.size()];
+    byte[] kinds = new byte[all.size()];
+    int i = 0;
+    for (Map.Entry<String, Byte> e : all.entrySet()) {
+      names[i] = e.getKey();
+      kinds[i++] = e.getValue();
+    }
+    return new ClassIndex(names, kinds);
+  }
+
+  /** ID del tipo: stabile per tutta la vita dell'indice. */
+  public int id(ClassType type) {
+    Integer id = typeIds.get(type);
+    if (id != null) return id;
+    return typeIds.computeIfAbsent(type, t -> {
+      Integer project = projectIds.get(t.getFullyQualifiedName());
+      return project != null ? project : nextLibId.getAndIncrement();
+    });
+  }
+
+  public byte kind(int id) {
+    return id < kinds.length ? kinds[id] : LIB;
+  }
+
+  public byte kind(ClassType type) {
+    return kind(id(type));
+  }
+
+  /** Tag per nome, per chi ha solo l'FQN (fuori dai percorsi caldi). */
+  public byte kind(String fqn) {
+    Integer id = projectIds.get(fqn);
+    return id == null ? LIB : kinds[id];
+  }
+
+  public boolean isProd(ClassType type) {
+    return kind(type) == PROD;
+  }
+
+  /** Classe di progetto (prod o test). */
+  public boolean isProject(ClassType type) {
+    return kind(type) != LIB;
+  }
+
+  public boolean isProject(String fqn) {
+    return projectIds.containsKey(fqn);
+  }
+
+  /** FQN di una classe di progetto (id minore di projectClassCount()). */
+  public String name(int id) {
+    return names[id];
+  }
+
+  /**
+   * ID delle classi prod il cui FQN termina con '.' + simpleName, in ordine alfabetico. Non
+   * va modificato.
+   */
+  public int[] prodBySimpleName(String simpleName) {
+    return prodBySimpleName.getOrDefault(simpleName, NO_IDS);
+  }
+
+  /**
+   * La classe prod fqn se esiste, altrimenti quella con lo stesso nome semplice nel package
+   * più vicino (più segmenti iniziali in comune; a pari merito la prima in ordine
+   * alfabetico); null se nessuna classe prod ha quel nome.
+   */
+  public String nearestProd(String fqn) {
+    Integer id = projectIds.get(fqn);
+    if (id != null && kinds[id] == PROD) return fqn;
+    int dot = fqn.lastIndexOf('.');
+    int best = -1;
+    int bestShared = -1;
+    for (int c : prodBySimpleName(fqn.substring(dot + 1))) {
+      int shared = sharedSegments(fqn, dot, names[c]);
+      if (shared > bestShared) {
+        best = c;
+        bestShared = shared;
+      }
+    }
+    return best >= 0 ? names[best] : null;
+  }
+
+  public int projectClassCount() {
+    return names.length;
+  }
+
+  /** FQN delle classi di progetto, in ordine alfabetico (= ordine degli ID). */
+  public List<String> projectClasses() {
+    return Arrays.asList(names);
+  }
+
+  /** Segmenti iniziali del package in comune tra fqn (package lungo pkgLen) e other. */
+  private static int sharedSegments(String fqn, int pkgLen, String other) {
+    int otherPkg = other.lastIndexOf('.');
+    int n = Math.min(pkgLen, otherPkg);
+    int shared = 0;
+    int i = 0;
+    for (; i < n && fqn.charAt(i) == other.charAt(i); i++) {
+      if (fqn.charAt(i) == '.') shared++;
+    }
+    // Ultimo segmento comune solo se finisce insieme in entrambi i package
+    boolean fqnEnds = i == pkgLen || (i < pkgLen && fqn.charAt(i) == '.');
+    boolean otherEnds = i == otherPkg || (i < otherPkg && other.charAt(i) == '.');
+    if (i == n && pkgLen > 0 && otherPkg > 0 && fqnEnds && otherEnds) shared++;
+    return shared;
+  }
+}
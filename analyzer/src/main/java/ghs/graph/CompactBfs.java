@@ -0,0 +1,93 @@
+package ghs.analyzer.graph;
+
+/**
+ * BFS su CompactCallGraph con array primitivi riutilizzabili: un nodo è visitato se
+ * stamp[v] == gen, quindi tra una BFS e la successiva basta incrementare gen. Stessa
+ * semantica di BfsTraverser (maxDepth, pruneLibs, maxVisited) e stesso ordine di visita.
+ * Un'istanza non è thread-safe: usarne una per thread.
+ */
+public final class CompactBfs implements Reach {
+
+  private int[] stamp = new int[0];
+  private int[] dist = new int[0];
+  private int[] order = new int[0];
+  private int[] pos = new int[0];
+  private int[] queue = new int[0];
+  private int gen = 0;
+  private int visited = 0;
+
+  /** Esegue la BFS da start; il risultato resta valido fino alla chiamata successiva. */
+  public int bfs(
+    CompactCallGraph g,
+    int start,
+    int maxDepth,
+    boolean pruneLibs,
+    int maxVisited
+  ) {
+    ensureCapacity(g.nodeCount());
+    if (++gen == 0) {
+      java.util.Arrays.fill(stamp, 0);
+      gen = 1;
+    }
+    stamp[start] = gen;
+    dist[start] = 0;
+    order[0] = start;
+    pos[start] = 0;
+    queue[0] = start;
+    visited = 1;
+    int head = 0;
+    int tail = 1;
+    while (head < tail) {
+      if (visited >= maxVisited) break;
+      int u = queue[head++];
+      int d = dist[u];
+      if (d >= maxDepth) continue;
+      if (pruneLibs && d >= 1 && g.kind(u) == CompactCallGraph.LIB) continue;
+      for (int e = g.firstEdge(u), end = g.endEdge(u); e < end; e++) {
+        int v = g.target(e);
+        if (stamp[v] == gen) continue;
+        stamp[v] = gen;
+        dist[v] = d + 1;
+        pos[v] = visited;
+        order[visited++] = v;
+        if (visited < maxVisited) queue[tail++] = v;
+      }
+    }
+    return visited;
+  }
+
+  @Override
+  public int size() {
+    return visited;
+  }
+
+  /** i-esimo nodo in ordine di scoperta (0 = nodo di partenza). */
+  @Override
+  public int node(int i) {
+    return order[i];
+  }
+
+  @Override
+  public int depth(int node) {
+    return dist[node];
+  }
+
+  @Override
+  public int compareOrder(int a, int b) {
+    return Integer.compare(pos[a], pos[b]);
+  }
+
+  public boolean isVisited(int node) {
+    return stamp[node] == gen;
+  }
+
+  private void ensureCapacity(int n) {
+    if (stamp.length >= n) return;
+    stamp = new int[n];
+    dist = new int[n];
+    order = new int[n];
+    pos = new int[n];
+    queue = new int[n];
+    gen = 0;
+  }
+}
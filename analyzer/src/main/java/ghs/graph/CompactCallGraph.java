@@ -0,0 +1,292 @@
+package ghs.analyzer.graph;
+
+import java.util.*;
+import sootup.callgraph.CallGraph;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.types.ClassType;
+
+/**
+ * Snapshot immutabile di un CallGraph SootUp con ID interi (formato CSR): i successori del
+ * nodo u sono targets[offsets[u] .. offsets[u+1]) nello stesso ordine di callsFrom(u),
+ * senza duplicati. Ogni nodo porta l'ID della propria classe e ogni classe il tag
+ * progetto/test/libreria, così la BFS non tocca più stringhe né set di FQN.
+ *
+ * <p>Uno snapshot costruito a partire dal precedente dello stesso modulo (CG esteso da
+ * IncrementalChaAlgorithm) mantiene gli ID dei nodi già presenti: se anche i loro archi
+ * sono invariati i due snapshot condividono la lineage e i dati calcolati per ID sul
+ * primo (vedi ReachSummaries) restano validi sul secondo.
+ */
+public final class CompactCallGraph {
+
+  public static final byte LIB = ClassIndex.LIB;
+  public static final byte PROD = ClassIndex.PROD;
+  public static final byte TEST = ClassIndex.TEST;
+
+  private final MethodSignature[] methods;
+  private final Map<MethodSignature, Integer> ids;
+  private final int[] offsets;
+  private final int[] targets;
+  private final int[] classOf;
+  private final String[] classNames;
+  /** ID nel ClassIndex del modulo di ogni classe del grafo. */
+  private final int[] classIndexIds;
+  private final ClassIndex index;
+  private final byte[] classKind;
+  private final boolean[] classMock;
+  private final Object lineage;
+  private volatile Callers callers;
+
+  /** CSR inverso (costruito su richiesta): per ogni nodo gli indici degli archi entranti. */
+  private record Callers(int[] offsets, int[] edges, int[] edgeSource) {}
+
+  private CompactCallGraph(
+    MethodSignature[] methods,
+    Map<MethodSignature, Integer> ids,
+    int[] offsets,
+    int[] targets,
+    int[] classOf,
+    String[] classNames,
+    int[] classIndexIds,
+    ClassIndex index,
+    byte[] classKind,
+    boolean[] classMock,
+    Object lineage
+  ) {
+    this.lineage = lineage;
+    this.methods = methods;
+    this.ids = ids;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.classOf = classOf;
+    this.classNames = classNames;
+    this.classIndexIds = classIndexIds;
+    this.index = index;
+    this.classKind = classKind;
+    this.classMock = classMock;
+  }
+
+  /** Converte il CG: i tag prod/test/libreria delle classi vengono dall'indice del modulo. */
+  public static CompactCallGraph of(
+    CallGraph cg,
+    ClassIndex classes,
+    MockUsageDetector mocks
+  ) {
+    return of(cg, classes, mocks, null);
+  }
+
+  /**
+   * Come sopra, ma riusa gli ID di previous (può essere null) per i metodi e le classi
+   * che contiene; i nodi nuovi seguono in coda.
+   */
+  public static CompactCallGraph of(
+    CallGraph cg,
+    ClassIndex classes,
+    MockUsageDetector mocks,
+    CompactCallGraph previous
+  ) {
+    Set<MethodSignature> all = cg.getMethodSignatures();
+    int n = all.size();
+    MethodSignature[] methods = new MethodSignature[n];
+    Map<MethodSignature, Integer> ids = new HashMap<>(n * 2);
+    int[] classOf = new int[n];
+    Map<ClassType, Integer> classIds = new HashMap<>();
+    List<String> classNames = new ArrayList<>();
+    int kept = 0;
+    if (
+      previous != null &&
+      previous.methods.length <= n &&
+      all.containsAll(Arrays.asList(previous.methods))
+    ) {
+      kept = previous.methods.length;
+      for (int id = 0; id < kept; id++) {
+        MethodSignature ms = previous.methods[id];
+        methods[id] = ms;
+        ids.put(ms, id);
+        classOf[id] = previous.classOf[id];
+        classIds.putIfAbsent(ms.getDeclClassType(), classOf[id]);
+      }
+      classNames.addAll(Arrays.asList(previous.classNames));
+    }
+    for (MethodSignature ms : all) {
+      if (ids.containsKey(ms)) continue;
+      int id = ids.size();
+      methods[id] = ms;
+      ids.put(ms, id);
+      classOf[id] = classIds.computeIfAbsent(ms.getDeclClassType(), t -> {
+        classNames.add(t.getFullyQualifiedName());
+        return classNames.size() - 1;
+      });
+    }
+
+    int nc = classNames.size();
+    byte[] classKind = new byte[nc];
+    int[] classIndexIds = new int[nc];
+    boolean[] classMock = new boolean[nc];
+    for (int u = 0; u < n; u++) {
+      int id = classes.id(methods[u].getDeclClassType());
+      classIndexIds[classOf[u]] = id;
+      classKind[classOf[u]] = classes.kind(id);
+    }
+    for (int c = 0; c < nc; c++) classMock[c] = mocks.isMockClass(
+      classNames.get(c)
+    );
+
+    int[] offsets = new int[n + 1];
+    int[] buf = new int[Math.max(16, n)];
+    int[] seen = new int[n];
+    int len = 0;
+    for (int u = 0; u < n; u++) {
+      offsets[u] = len;
+      for (CallGraph.Call call : cg.callsFrom(methods[u])) {
+        Integer v = ids.get(call.getTargetMethodSignature());
+        if (v == null || seen[v] == u + 1) continue;
+        seen[v] = u + 1;
+        if (len == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+        buf[len++] = v;
+      }
+    }
+    offsets[n] = len;
+
+    // Stessa lineage solo se il precedente è un prefisso esatto (nodi, classi e archi)
+    Object lineage = new Object();
+    if (previous != null && kept == previous.methods.length) {
+      boolean same = true;
+      for (int c = 0; same && c < previous.classKind.length; c++) {
+        same = previous.classKind[c] == classKind[c];
+      }
+      for (int u = 0; same && u < kept; u++) {
+        same = Arrays.equals(
+          previous.targets,
+          previous.offsets[u],
+          previous.offsets[u + 1],
+          buf,
+          offsets[u],
+          offsets[u + 1]
+        );
+      }
+      if (same) lineage = previous.lineage;
+    }
+
+    return new CompactCallGraph(
+      methods,
+      ids,
+      offsets,
+      Arrays.copyOf(buf, len),
+      classOf,
+      classNames.toArray(new String[0]),
+      classIndexIds,
+      classes,
+      classKind,
+      classMock,
+      lineage
+    );
+  }
+
+  /** Snapshot con la stessa lineage hanno gli stessi ID e archi sui nodi comuni. */
+  public Object lineage() {
+    return lineage;
+  }
+
+  public int nodeCount() {
+    return methods.length;
+  }
+
+  public int edgeCount() {
+    return targets.length;
+  }
+
+  /** ID del metodo, oppure -1 se non è nel grafo. */
+  public int idOf(MethodSignature ms) {
+    Integer id = ids.get(ms);
+    return id == null ? -1 : id;
+  }
+
+  public MethodSignature method(int node) {
+    return methods[node];
+  }
+
+  public int firstEdge(int node) {
+    return offsets[node];
+  }
+
+  public int endEdge(int node) {
+    return offsets[node + 1];
+  }
+
+  public int target(int edge) {
+    return targets[edge];
+  }
+
+  /** Sorgente dell'arco e (indice nell'array dei successori). */
+  public int source(int edge) {
+    return callers().edgeSource[edge];
+  }
+
+  /** Archi entranti del nodo: indici in [firstCaller, endCaller) da passare a callerEdge. */
+  public int firstCaller(int node) {
+    return callers().offsets[node];
+  }
+
+  public int endCaller(int node) {
+    return callers().offsets[node + 1];
+  }
+
+  /** Indice (nell'array dei successori) dell'i-esimo arco entrante. */
+  public int callerEdge(int i) {
+    return callers().edges[i];
+  }
+
+  public int classOf(int node) {
+    return classOf[node];
+  }
+
+  public int classCount() {
+    return classNames.length;
+  }
+
+  public String className(int classId) {
+    return classNames[classId];
+  }
+
+  /** ID nel ClassIndex del modulo della classe classId. */
+  public int indexId(int classId) {
+    return classIndexIds[classId];
+  }
+
+  /** ClassIndex da cui vengono i tag delle classi. */
+  public ClassIndex index() {
+    return index;
+  }
+
+  public byte kind(int node) {
+    return classKind[classOf[node]];
+  }
+
+  public boolean isMock(int node) {
+    return classMock[classOf[node]];
+  }
+
+  private Callers callers() {
+    Callers c = callers;
+    if (c != null) return c;
+    synchronized (this) {
+      if (callers == null) {
+        int n = methods.length;
+        int[] offsets = new int[n + 1];
+        int[] edgeSource = new int[targets.length];
+        for (int u = 0; u < n; u++) {
+          for (int e = this.offsets[u]; e < this.offsets[u + 1]; e++) {
+            edgeSource[e] = u;
+            offsets[targets[e] + 1]++;
+          }
+        }
+        for (int v = 0; v < n; v++) offsets[v + 1] += offsets[v];
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] edges = new int[targets.length];
+        for (int e = 0; e < targets.length; e++) edges[fill[targets[e]]++] = e;
+        callers = new Callers(offsets, edges, edgeSource);
+      }
+      return callers;
+    }
+  }
+}
@@ -0,0 +1,362 @@
+package ghs.analyzer.graph;
+
+import ghs.analyzer.heuristics.*;
+import ghs.analyzer.model.*;
+import java.util.*;
+import sootup.core.signatures.MethodSignature;
+import sootup.java.core.JavaSootMethod;
+
+/**
+ * Variante di ChaCallGraphAnalyzer che lavora su CompactCallGraph: BFS senza allocazioni
+ * per nodo visitato e statistiche calcolate su ID di nodo/classe. Produce gli stessi
+ * TestRecord (compresi i pareggi su focal class e focal method) del percorso SootUp; come
+ * lì le classi raggiunte si raccolgono solo con incremental.
+ */
+public final class CompactCallGraphAnalyzer {
+
+  private final UnitIntegrationScorer scorer;
+  private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(
+    Scratch::new
+  );
+
+  public CompactCallGraphAnalyzer(UnitIntegrationScorer scorer) {
+    this.scorer = scorer;
+  }
+
+  /** Restituisce null se il test non è un nodo del grafo (il chiamante usa il percorso SootUp). */
+  public TestRecord analyzeOne(
+    String repoName,
+    java.nio.file.Path module,
+    String cfgId,
+    CompactCallGraph g,
+    JavaSootMethod tm,
+    int maxDepth,
+    boolean pruneLibs,
+    int maxVisited,
+    java.util.function.Function<String, String> simpleName,
+    FocalClassHeuristic classHeu,
+    FocalMethodHeuristic methodHeu,
+    boolean incremental
+  ) {
+    int root = g.idOf(tm.getSignature());
+    if (root < 0) return null;
+    Scratch s = scratch.get();
+    s.bfs.bfs(g, root, maxDepth, pruneLibs, maxVisited);
+    return toRecord(
+      repoName,
+      module,
+      cfgId,
+      g,
+      tm,
+      root,
+      s.bfs,
+      simpleName,
+      classHeu,
+      methodHeu,
+      incremental
+    );
+  }
+
+  /**
+   * Come analyzeOne, ma i nodi raggiunti vengono dai riassunti del modulo (già agganciati
+   * allo snapshot g); se non sono utilizzabili per questo test si usa la BFS.
+   */
+  public TestRecord analyzeSummarized(
+    String repoName,
+    java.nio.file.Path module,
+    String cfgId,
+    CompactCallGraph g,
+    ReachSummaries summaries,
+    JavaSootMethod tm,
+    int maxDepth,
+    boolean pruneLibs,
+    int maxVisited,
+    java.util.function.Function<String, String> simpleName,
+    FocalClassHeuristic classHeu,
+    FocalMethodHeuristic methodHeu,
+    boolean incremental
+  ) {
+    int root = g.idOf(tm.getSignature());
+    if (root < 0) return null;
+    Reach reach = summaries.reach(root, maxDepth, maxVisited);
+    if (reach == null) {
+      CompactBfs bfs = scratch.get().bfs;
+      bfs.bfs(g, root, maxDepth, pruneLibs, maxVisited);
+      reach = bfs;
+    }
+    return toRecord(
+      repoName,
+      module,
+      cfgId,
+      g,
+      tm,
+      root,
+      reach,
+      simpleName,
+      classHeu,
+      methodHeu,
+      incremental
+    );
+  }
+
+  /**
+   * Come analyzeOne su più test, con una BFS multi-sorgente ogni MultiSourceBfs.WIDTH test.
+   * La lista restituita è nell'ordine di tests, con null per i test assenti dal grafo.
+   */
+  public List<TestRecord> analyzeMany(
+    String repoName,
+    java.nio.file.Path module,
+    String cfgId,
+    CompactCallGraph g,
+    List<JavaSootMethod> tests,
+    int maxDepth,
+    boolean pruneLibs,
+    int maxVisited,
+    java.util.function.Function<String, String> simpleName,
+    FocalClassHeuristic classHeu,
+    FocalMethodHeuristic methodHeu,
+    boolean incremental
+  ) {
+    List<TestRecord> out = new ArrayList<>(
+      Collections.nCopies(tests.size(), null)
+    );
+    int[] roots = new int[tests.size()];
+    int[] slots = new int[tests.size()];
+    int n = 0;
+    for (int i = 0; i < tests.size(); i++) {
+      int root = g.idOf(tests.get(i).getSignature());
+      if (root < 0) continue;
+      roots[n] = root;
+      slots[n++] = i;
+    }
+
+    Scratch s = scratch.get();
+    for (int from = 0; from < n; from += MultiSourceBfs.WIDTH) {
+      int to = Math.min(n, from + MultiSourceBfs.WIDTH);
+      s.msbfs.run(g, roots, from, to, maxDepth, pruneLibs, maxVisited);
+      for (int k = from; k < to; k++) {
+        Reach reach;
+        if (s.msbfs.truncated(k - from)) {
+          // Troncamento dipendente dall'ordine di visita: si rifà la BFS del singolo test
+          s.bfs.bfs(g, roots[k], maxDepth, pruneLibs, maxVisited);
+          reach = s.bfs;
+        } else {
+          reach = s.msbfs.source(k - from);
+        }
+        JavaSootMethod tm = tests.get(slots[k]);
+        out.set(
+          slots[k],
+          toRecord(
+            repoName,
+            module,
+            cfgId,
+            g,
+            tm,
+            roots[k],
+            reach,
+            simpleName,
+            classHeu,
+            methodHeu,
+            incremental
+          )
+        );
+      }
+    }
+    return out;
+  }
+
+  private TestRecord toRecord(
+    String repoName,
+    java.nio.file.Path module,
+    String cfgId,
+    CompactCallGraph g,
+    JavaSootMethod tm,
+    int root,
+    Reach reach,
+    java.util.function.Function<String, String> simpleName,
+    FocalClassHeuristic classHeu,
+    FocalMethodHeuristic methodHeu,
+    boolean incremental
+  ) {
+    MethodSignature tSig = tm.getSignature();
+    String testClass = tSig.getDeclClassType().getFullyQualifiedName();
+    String testMethod = tSig.getSubSignature().toString();
+    String candidateFocalClass = classHeu.guessFocalClassFromTestName(
+      testClass
+    );
+    // Classi prod con il nome semplice della candidata, risolte una volta per test
+    int[] byNameIds = g
+      .index()
+      .prodBySimpleName(simpleName.apply(candidateFocalClass));
+
+    Scratch s = scratch.get();
+    s.ensureClasses(g.classCount());
+    int cgen = s.nextClassGen();
+    int visited = reach.size();
+
+    // Un solo passaggio: i conteggi non dipendono dall'ordine, il match per nome prende
+    // il primo nodo in ordine di scoperta
+    int projectTargets = 0;
+    int uniqueProjectClasses = 0;
+    int callsToLibraries = 0;
+    int maxDepthVisited = 0;
+    int byNameNode = -1;
+    Set<String> reachedClasses = new HashSet<>();
+    for (int i = 0; i < visited; i++) {
+      int v = reach.node(i);
+      maxDepthVisited = Math.max(maxDepthVisited, reach.depth(v));
+      byte kind = g.kind(v);
+      if (incremental && kind != CompactCallGraph.LIB) reachedClasses.add(
+        g.className(g.classOf(v))
+      );
+      if (kind == CompactCallGraph.PROD) {
+        projectTargets++;
+        int c = g.classOf(v);
+        if (s.classSeen[c] != cgen) {
+          s.classSeen[c] = cgen;
+          uniqueProjectClasses++;
+        }
+        if (
+          byNameIds.length > 0 &&
+          (byNameNode < 0 || reach.compareOrder(v, byNameNode) < 0) &&
+          Arrays.binarySearch(byNameIds, g.indexId(c)) >= 0
+        ) byNameNode = v;
+      } else if (kind == CompactCallGraph.LIB) {
+        callsToLibraries++;
+      }
+    }
+
+    String focalClassFqn;
+    if (byNameNode >= 0) {
+      focalClassFqn = g.className(g.classOf(byNameNode));
+    } else {
+      String byMinDistanceClass = minDistanceClass(
+        g,
+        reach,
+        uniqueProjectClasses
+      );
+      focalClassFqn = byMinDistanceClass != null
+        ? byMinDistanceClass
+        : candidateFocalClass;
+    }
+
+    List<Integer> focalNodes = new ArrayList<>();
+    for (int i = 0; i < visited; i++) {
+      int v = reach.node(i);
+      if (
+        g.kind(v) == CompactCallGraph.PROD &&
+        g.className(g.classOf(v)).equals(focalClassFqn)
+      ) focalNodes.add(v);
+    }
+    focalNodes.sort(reach::compareOrder);
+    List<MethodSignature> focalClassMethods = new ArrayList<>(
+      focalNodes.size()
+    );
+    for (int v : focalNodes) focalClassMethods.add(g.method(v));
+    Optional<MethodSignature> focalMethodSig = methodHeu.selectFocalMethod(
+      focalClassFqn,
+      focalClassMethods
+    );
+
+    boolean usesMocks = false;
+    for (int e = g.firstEdge(root), end = g.endEdge(root); e < end; e++) {
+      if (g.isMock(g.target(e))) {
+        usesMocks = true;
+        break;
+      }
+    }
+
+    int callsToFocal = focalClassMethods.size();
+    int callsToOtherProjectClasses = projectTargets - callsToFocal;
+    double score = scorer.score(
+      projectTargets,
+      callsToOtherProjectClasses,
+      usesMocks
+    );
+
+    return new TestRecord(
+      repoName,
+      module.toString(),
+      cfgId,
+      testClass,
+      testMethod,
+      focalClassFqn,
+      focalMethodSig.map(MethodSignature::toString).orElse(""),
+      new CgStats(
+        projectTargets,
+        callsToFocal,
+        callsToOtherProjectClasses,
+        callsToLibraries,
+        uniqueProjectClasses,
+        maxDepthVisited
+      ),
+      usesMocks,
+      score,
+      reachedClasses
+    );
+  }
+
+  /**
+   * Classe di progetto a distanza minima. Il percorso SootUp raggruppa in una HashMap e
+   * prende la prima in ordine di iterazione tra quelle a pari distanza. L'ordine di una
+   * HashMap dipende dalla dimensione della tabella e, tra chiavi dello stesso bucket,
+   * dall'ordine di inserimento: basta una mappa con la stessa capacità finale (classes
+   * chiavi) in cui inserire le sole classi a distanza minima nell'ordine di prima scoperta.
+   */
+  private static String minDistanceClass(
+    CompactCallGraph g,
+    Reach reach,
+    int classes
+  ) {
+    Map<Integer, Integer> firstByClass = new HashMap<>();
+    int bestDepth = Integer.MAX_VALUE;
+    for (int i = 0; i < reach.size(); i++) {
+      int v = reach.node(i);
+      if (g.kind(v) != CompactCallGraph.PROD) continue;
+      int d = reach.depth(v);
+      if (d > bestDepth) continue;
+      if (d < bestDepth) {
+        bestDepth = d;
+        firstByClass.clear();
+      }
+      firstByClass.merge(g.classOf(v), v, (a, b) ->
+        reach.compareOrder(a, b) <= 0 ? a : b
+      );
+    }
+    if (firstByClass.isEmpty()) return null;
+    if (firstByClass.size() == 1) return g.className(
+      firstByClass.keySet().iterator().next()
+    );
+
+    List<Integer> tied = new ArrayList<>(firstByClass.values());
+    tied.sort(reach::compareOrder);
+    int capacity = 16;
+    while (classes > capacity * 3 / 4) capacity <<= 1;
+    Map<String, Integer> minByClass = new HashMap<>(capacity);
+    for (int v : tied) minByClass.put(g.className(g.classOf(v)), bestDepth);
+    return minByClass.keySet().iterator().next();
+  }
+
+  /** Scratch per thread: BFS e marcatori per classe con generazione. */
+  private static final class Scratch {
+
+    final CompactBfs bfs = new CompactBfs();
+    final MultiSourceBfs msbfs = new MultiSourceBfs();
+    int[] classSeen = new int[0];
+    int classGen = 0;
+
+    void ensureClasses(int n) {
+      if (classSeen.length >= n) return;
+      classSeen = new int[n];
+      classGen = 0;
+    }
+
+    int nextClassGen() {
+      if (++classGen == 0) {
+        Arrays.fill(classSeen, 0);
+        classGen = 1;
+      }
+      return classGen;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package ghs.analyzer.graph;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Ricostruisce l'ordine di scoperta della BFS single-source a partire dai soli insiemi
+ * raggiunti e dalle distanze. A parità di distanza v precede w se il suo primo scopritore
+ * (il chiamante a distanza d-1 espanso per primo) viene prima o, a parità di scopritore,
+ * se l'arco viene prima tra i successori. La chiave di un nodo è quindi la sequenza di
+ * indici d'arco lungo il cammino di scoperta, confrontata in ordine lessicografico; viene
+ * calcolata (con il CSR inverso) solo per i nodi coinvolti in un pareggio.
+ */
+final class DiscoveryOrder {
+
+  private static final int[] ROOT_KEY = new int[0];
+
+  private final Map<Integer, int[]> keys = new HashMap<>();
+  private CompactCallGraph g;
+  private boolean pruneLibs;
+  private int root;
+  private Reach reach;
+  private IntPredicate visited;
+
+  void reset(
+    CompactCallGraph g,
+    boolean pruneLibs,
+    int root,
+    Reach reach,
+    IntPredicate visited
+  ) {
+    this.g = g;
+    this.pruneLibs = pruneLibs;
+    this.root = root;
+    this.reach = reach;
+    this.visited = visited;
+    keys.clear();
+  }
+
+  int compare(int a, int b) {
+    if (a == b) return 0;
+    int c = Integer.compare(reach.depth(a), reach.depth(b));
+    if (c != 0) return c;
+    return Arrays.compare(key(a), key(b));
+  }
+
+  private int[] key(int v) {
+    if (v == root) return ROOT_KEY;
+    int[] cached = keys.get(v);
+    if (cached != null) return cached;
+    int d = reach.depth(v);
+    int[] best = null;
+    for (int i = g.firstCaller(v), end = g.endCaller(v); i < end; i++) {
+      int e = g.callerEdge(i);
+      int u = g.source(e);
+      if (!visited.test(u) || reach.depth(u) != d - 1) continue;
+      if (pruneLibs && d - 1 >= 1 && g.kind(u) == CompactCallGraph.LIB) continue;
+      int[] ku = key(u);
+      int[] cand = Arrays.copyOf(ku, ku.length + 1);
+      cand[ku.length] = e - g.firstEdge(u);
+      if (best == null || Arrays.compare(cand, best) < 0) best = cand;
+    }
+    keys.put(v, best);
+    return best;
+  }
+}
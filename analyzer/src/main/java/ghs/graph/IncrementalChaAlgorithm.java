@@ -0,0 +1,65 @@
+package ghs.analyzer.graph;
+
+import java.util.*;
+import sootup.callgraph.CallGraph;
+import sootup.callgraph.ClassHierarchyAnalysisAlgorithm;
+import sootup.callgraph.MutableCallGraph;
+import sootup.core.model.SootClass;
+import sootup.core.model.SootMethod;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.views.View;
+
+/**
+ * CHA che fa crescere un unico call graph man mano che arrivano nuovi entry point.
+ * Il worklist replica quello di AbstractCallGraphAlgorithm, ma l'insieme dei metodi già
+ * risolti sopravvive tra una chiamata e l'altra: ogni metodo viene risolto una sola volta
+ * per modulo e gli archi uscenti restano identici a quelli di un CG costruito per batch.
+ * Non è thread-safe: va esteso da un solo thread alla volta.
+ */
+public final class IncrementalChaAlgorithm extends ClassHierarchyAnalysisAlgorithm {
+
+  private final Set<MethodSignature> processed = new HashSet<>();
+  private MutableCallGraph cg;
+
+  public IncrementalChaAlgorithm(View view) {
+    super(view);
+  }
+
+  /** Aggiunge gli entry point al grafo risolvendo solo i metodi non ancora visti. */
+  public CallGraph extend(List<MethodSignature> entries) {
+    List<MethodSignature> clinits = getClinitFromEntryPoints(entries);
+    if (cg == null) {
+      cg = initializeCallGraph(entries, clinits);
+    } else {
+      for (MethodSignature m : entries) if (!cg.containsMethod(m)) cg.addMethod(m);
+      for (MethodSignature m : clinits) if (!cg.containsMethod(m)) cg.addMethod(m);
+    }
+    Deque<MethodSignature> work = new ArrayDeque<>(entries);
+    work.addAll(clinits);
+    processWorkList(work);
+    return cg;
+  }
+
+  /** Numero di metodi risolti finora (per il log). */
+  public int resolvedMethods() {
+    return processed.size();
+  }
+
+  private void processWorkList(Deque<MethodSignature> work) {
+    while (!work.isEmpty()) {
+      MethodSignature m = work.pop();
+      if (processed.contains(m)) continue;
+      SootClass cls = view.getClass(m.getDeclClassType()).orElse(null);
+      if (cls == null || cls.isLibraryClass()) continue;
+      preProcessingMethod(m, work, cg);
+      if (!cg.containsMethod(m)) cg.addMethod(m);
+      SootMethod sm = (SootMethod) cls
+        .getMethod(m.getSubSignature())
+        .orElse(null);
+      resolveAllCallsFromSourceMethod(sm, cg, work);
+      resolveAllImplicitCallsFromSourceMethod(sm, cg, work);
+      processed.add(m);
+      postProcessingMethod(m, work, cg);
+    }
+  }
+}
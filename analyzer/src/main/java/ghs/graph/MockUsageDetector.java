@@ -5,21 +5,29 @@ import sootup.core.signatures.MethodSignature;
 
 public final class MockUsageDetector {
 
+  private static final PackageTrie MOCK_PACKAGES = PackageTrie.of(
+    "org.mockito.",
+    "org.easymock.",
+    "org.powermock.",
+    "io.mockk."
+  );
+
   public boolean usesMocks(CallGraph cg, MethodSignature test) {
-    return cg
-      .callsFrom(test)
-      .stream()
-      .anyMatch(call -> {
-        String fqn = call
-          .getTargetMethodSignature()
-          .getDeclClassType()
-          .getFullyQualifiedName();
-        return (
-          fqn.startsWith("org.mockito.") ||
-          fqn.startsWith("org.easymock.") ||
-          fqn.startsWith("org.powermock.") ||
-          fqn.startsWith("io.mockk.")
-        );
-      });
+    for (CallGraph.Call call : cg.callsFrom(test)) {
+      if (isMock(call.getTargetMethodSignature())) return true;
+    }
+    return false;
+  }
+
+  /** Come isMockClass, dal package già in memoria: niente FQN ricostruito. */
+  public boolean isMock(MethodSignature m) {
+    return MOCK_PACKAGES.matchesPackage(
+      m.getDeclClassType().getPackageName().getName()
+    );
+  }
+
+  /** True se la classe appartiene a un framework di mocking noto. */
+  public boolean isMockClass(String fqn) {
+    return MOCK_PACKAGES.matches(fqn);
   }
 }
@@ -0,0 +1,207 @@
+package ghs.analyzer.graph;
+
+import java.util.*;
+
+/**
+ * BFS multi-sorgente bit-parallela (stile MS-BFS) su CompactCallGraph: fino a 64 test per
+ * passata, un bit per sorgente in un long per nodo. Ogni livello espande una sola volta i
+ * nodi condivisi da più test, con le stesse regole di BfsTraverser (maxDepth, pruneLibs).
+ *
+ * <p>Dopo la passata, source(i) restituisce la Reach del test i: stessi nodi e stesse
+ * distanze della BFS single-source. L'ordine di scoperta serve solo per i pareggi e viene
+ * ricostruito su richiesta risalendo i chiamanti (vedi DiscoveryOrder). Se una
+ * sorgente raggiunge maxVisited nodi la BFS originale sarebbe stata troncata in un punto
+ * che dipende dall'ordine: truncated(i) lo segnala e il chiamante ripiega sulla single-source.
+ * Un'istanza non è thread-safe: usarne una per thread.
+ */
+public final class MultiSourceBfs {
+
+  public static final int WIDTH = 64;
+
+  private CompactCallGraph g;
+  private boolean pruneLibs;
+  private int levels;
+
+  private long[] seen = new long[0];
+  private long[] next = new long[0];
+  private int[] nextList = new int[0];
+
+  // Nodi scoperti livello per livello con i bit delle sorgenti che li scoprono a quel livello
+  private int[] entryNode = new int[256];
+  private long[] entryBits = new long[256];
+  private int entries = 0;
+  private int[] levelStart = new int[64];
+
+  private final int[] roots = new int[WIDTH];
+  private final int[] counts = new int[WIDTH];
+  private int sources = 0;
+  private int maxVisited;
+
+  private final SourceReach reach = new SourceReach();
+
+  /** Esegue una passata per le sorgenti date (al massimo WIDTH). */
+  public void run(
+    CompactCallGraph g,
+    int[] roots,
+    int from,
+    int to,
+    int maxDepth,
+    boolean pruneLibs,
+    int maxVisited
+  ) {
+    this.g = g;
+    this.pruneLibs = pruneLibs;
+    this.maxVisited = maxVisited;
+    this.sources = to - from;
+    if (sources > WIDTH) throw new IllegalArgumentException(
+      "max " + WIDTH + " sorgenti per passata"
+    );
+    ensureCapacity(g.nodeCount());
+    Arrays.fill(counts, 0);
+    entries = 0;
+    levels = 0;
+
+    // Livello 0: le radici
+    levelStart[0] = 0;
+    for (int i = 0; i < sources; i++) {
+      int r = roots[from + i];
+      this.roots[i] = r;
+      long bit = 1L << i;
+      seen[r] |= bit;
+      addEntry(r, bit);
+      counts[i] = 1;
+    }
+    levels = 1;
+
+    for (int d = 0; d < maxDepth; d++) {
+      int nextCount = 0;
+      for (int k = levelStart[d]; k < entries; k++) {
+        int u = entryNode[k];
+        long bits = entryBits[k];
+        if (pruneLibs && d >= 1 && g.kind(u) == CompactCallGraph.LIB) continue;
+        for (int e = g.firstEdge(u), end = g.endEdge(u); e < end; e++) {
+          int v = g.target(e);
+          long nb = bits & ~seen[v];
+          if (nb == 0) continue;
+          if (next[v] == 0) {
+            if (nextCount == nextList.length) nextList = Arrays.copyOf(
+              nextList,
+              nextList.length * 2
+            );
+            nextList[nextCount++] = v;
+          }
+          next[v] |= nb;
+          seen[v] |= nb;
+        }
+      }
+      if (nextCount == 0) break;
+      if (levels + 1 >= levelStart.length) levelStart = Arrays.copyOf(
+        levelStart,
+        levelStart.length * 2
+      );
+      levelStart[levels] = entries;
+      for (int k = 0; k < nextCount; k++) {
+        int v = nextList[k];
+        long nb = next[v];
+        next[v] = 0;
+        addEntry(v, nb);
+        while (nb != 0) {
+          counts[Long.numberOfTrailingZeros(nb)]++;
+          nb &= nb - 1;
+        }
+      }
+      levels++;
+    }
+    levelStart[levels] = entries;
+
+    // Pulizia di seen per la passata successiva (solo i nodi toccati)
+    for (int k = 0; k < entries; k++) seen[entryNode[k]] = 0;
+  }
+
+  /** True se la sorgente i ha raggiunto maxVisited: serve la BFS single-source. */
+  public boolean truncated(int i) {
+    return counts[i] >= maxVisited;
+  }
+
+  /** Reach della sorgente i; resta valida fino alla successiva chiamata di source o run. */
+  public Reach source(int i) {
+    reach.load(i);
+    return reach;
+  }
+
+  private void addEntry(int node, long bits) {
+    if (entries == entryNode.length) {
+      entryNode = Arrays.copyOf(entryNode, entries * 2);
+      entryBits = Arrays.copyOf(entryBits, entries * 2);
+    }
+    entryNode[entries] = node;
+    entryBits[entries] = bits;
+    entries++;
+  }
+
+  private void ensureCapacity(int n) {
+    if (seen.length >= n) return;
+    seen = new long[n];
+    next = new long[n];
+    nextList = new int[Math.max(16, n)];
+    reach.ensureCapacity(n);
+  }
+
+  /** Vista della singola sorgente; l'ordine di scoperta è delegato a DiscoveryOrder. */
+  private final class SourceReach implements Reach {
+
+    private int[] stamp = new int[0];
+    private int[] dist = new int[0];
+    private int[] list = new int[0];
+    private int gen = 0;
+    private int size = 0;
+    private final DiscoveryOrder order = new DiscoveryOrder();
+
+    void ensureCapacity(int n) {
+      if (stamp.length >= n) return;
+      stamp = new int[n];
+      dist = new int[n];
+      list = new int[n];
+      gen = 0;
+    }
+
+    void load(int i) {
+      if (++gen == 0) {
+        Arrays.fill(stamp, 0);
+        gen = 1;
+      }
+      size = 0;
+      long bit = 1L << i;
+      for (int lv = 0; lv < levels; lv++) {
+        for (int k = levelStart[lv]; k < levelStart[lv + 1]; k++) {
+          if ((entryBits[k] & bit) == 0) continue;
+          int v = entryNode[k];
+          stamp[v] = gen;
+          dist[v] = lv;
+          list[size++] = v;
+        }
+      }
+      order.reset(g, pruneLibs, roots[i], this, u -> stamp[u] == gen);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public int node(int i) {
+      return list[i];
+    }
+
+    @Override
+    public int depth(int node) {
+      return dist[node];
+    }
+
+    @Override
+    public int compareOrder(int a, int b) {
+      return order.compare(a, b);
+    }
+  }
+}
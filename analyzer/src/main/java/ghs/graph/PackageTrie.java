@@ -0,0 +1,77 @@
+package ghs.analyzer.graph;
+
+import java.util.*;
+
+/**
+ * Trie di caratteri sui prefissi di package, compilato una volta: il controllo di un FQN
+ * legge i suoi caratteri solo finché c'è un prefisso che combacia, di solito uno o due, invece
+ * di un startsWith per prefisso.
+ */
+final class PackageTrie {
+
+  private static final class Node {
+
+    char[] keys = new char[0];
+    Node[] next = new Node[0];
+    boolean end;
+
+    Node child(char c) {
+      int i = Arrays.binarySearch(keys, c);
+      return i >= 0 ? next[i] : null;
+    }
+
+    Node add(char c) {
+      int i = Arrays.binarySearch(keys, c);
+      if (i >= 0) return next[i];
+      int at = -i - 1;
+      char[] k = new char[keys.length + 1];
+      Node[] n = new Node[next.length + 1];
+      System.arraycopy(keys, 0, k, 0, at);
+      System.arraycopy(next, 0, n, 0, at);
+      System.arraycopy(keys, at, k, at + 1, keys.length - at);
+      System.arraycopy(next, at, n, at + 1, next.length - at);
+      k[at] = c;
+      n[at] = new Node();
+      keys = k;
+      next = n;
+      return n[at];
+    }
+  }
+
+  private final Node root = new Node();
+
+  /** Prefissi completi di punto finale, es. "org.mockito.". */
+  static PackageTrie of(String... prefixes) {
+    PackageTrie t = new PackageTrie();
+    for (String p : prefixes) {
+      Node n = t.root;
+      for (int i = 0; i < p.length(); i++) n = n.add(p.charAt(i));
+      n.end = true;
+    }
+    return t;
+  }
+
+  /** True se fqn inizia con uno dei prefissi. */
+  boolean matches(String fqn) {
+    Node n = root;
+    for (int i = 0; i < fqn.length(); i++) {
+      if (n.end) return true;
+      n = n.child(fqn.charAt(i));
+      if (n == null) return false;
+    }
+    return n.end;
+  }
+
+  /** True se le classi del package pkg (senza punto finale) iniziano con un prefisso. */
+  boolean matchesPackage(String pkg) {
+    Node n = root;
+    for (int i = 0; i < pkg.length(); i++) {
+      if (n.end) return true;
+      n = n.child(pkg.charAt(i));
+      if (n == null) return false;
+    }
+    if (n.end) return true;
+    n = n.child('.');
+    return n != null && n.end;
+  }
+}
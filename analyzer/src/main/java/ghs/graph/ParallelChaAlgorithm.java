@@ -0,0 +1,123 @@
+package ghs.analyzer.graph;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import sootup.callgraph.CallGraph;
+import sootup.callgraph.ClassHierarchyAnalysisAlgorithm;
+import sootup.callgraph.GraphBasedCallGraph;
+import sootup.callgraph.MutableCallGraph;
+import sootup.core.model.SootClass;
+import sootup.core.model.SootMethod;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.views.View;
+
+/**
+ * CHA costruita da più thread. Gli entry point sono distribuiti a turno tra i worker; ognuno
+ * ha il proprio worklist e il proprio grafo parziale, e un metodo viene risolto solo dal
+ * worker che lo reclama per primo (insieme condiviso). Gli archi uscenti di un metodo
+ * dipendono solo dal bytecode e dalla gerarchia, quindi stanno tutti nel grafo parziale di
+ * chi l'ha risolto, nell'ordine di risoluzione: la fusione finale produce gli stessi nodi e,
+ * per ogni metodo, gli stessi archi nello stesso ordine della CHA sequenziale.
+ *
+ * <p>Ogni worker ha la sua view: in SootUp la costruzione lazy dei body (TypeAssigner, cache
+ * degli antenati comuni della gerarchia) e la gerarchia stessa non sono thread-safe. Il primo
+ * worker usa la view dell'algoritmo, libera mentre il thread chiamante aspetta; le altre
+ * vengono create prima di partire, sul thread chiamante.
+ */
+public final class ParallelChaAlgorithm extends ClassHierarchyAnalysisAlgorithm {
+
+  private final Supplier<? extends View> views;
+  private final ExecutorService executor;
+  private final int workers;
+
+  /** views crea le view aggiuntive dei worker, sugli stessi input di view. */
+  public ParallelChaAlgorithm(
+    View view,
+    Supplier<? extends View> views,
+    ExecutorService executor,
+    int workers
+  ) {
+    super(view);
+    this.views = views;
+    this.executor = executor;
+    this.workers = workers;
+  }
+
+  public CallGraph build(List<MethodSignature> entries) throws Exception {
+    List<MethodSignature> clinits = getClinitFromEntryPoints(entries);
+    MutableCallGraph cg = initializeCallGraph(entries, clinits);
+
+    List<MethodSignature> roots = new ArrayList<>(entries);
+    roots.addAll(clinits);
+    int n = Math.max(1, Math.min(workers, roots.size()));
+    Set<MethodSignature> claimed = ConcurrentHashMap.newKeySet();
+    List<Future<Partial>> futures = new ArrayList<>();
+    for (int w = 0; w < n; w++) {
+      Deque<MethodSignature> work = new ArrayDeque<>();
+      for (int i = w; i < roots.size(); i += n) work.add(roots.get(i));
+      Worker worker = new Worker(w == 0 ? view : views.get());
+      futures.add(executor.submit(() -> worker.resolve(work, claimed)));
+    }
+    List<Partial> partials = new ArrayList<>();
+    for (Future<Partial> f : futures) {
+      try {
+        partials.add(f.get());
+      } catch (ExecutionException e) {
+        // Causa originale (es. OutOfMemoryError) per la gestione nel ModuleAnalyzer
+        if (e.getCause() instanceof Error err) throw err;
+        if (e.getCause() instanceof Exception ex) throw ex;
+        throw e;
+      }
+    }
+
+    // Prima tutti i nodi, poi gli archi di ogni metodo risolto
+    for (Partial p : partials) {
+      for (MethodSignature m : p.graph.getMethodSignatures()) {
+        if (!cg.containsMethod(m)) cg.addMethod(m);
+      }
+    }
+    for (Partial p : partials) {
+      for (MethodSignature m : p.resolved) {
+        for (CallGraph.Call call : p.graph.callsFrom(m)) cg.addCall(call);
+      }
+    }
+    return cg;
+  }
+
+  /** Grafo parziale di un worker e metodi che ha risolto lui. */
+  private record Partial(MutableCallGraph graph, List<MethodSignature> resolved) {}
+
+  /** CHA di un worker sulla propria view. */
+  private static final class Worker extends ClassHierarchyAnalysisAlgorithm {
+
+    Worker(View view) {
+      super(view);
+    }
+
+    Partial resolve(
+      Deque<MethodSignature> work,
+      Set<MethodSignature> claimed
+    ) {
+      MutableCallGraph graph = new GraphBasedCallGraph(new ArrayList<>());
+      List<MethodSignature> resolved = new ArrayList<>();
+      for (MethodSignature m : work) graph.addMethod(m);
+      while (!work.isEmpty()) {
+        MethodSignature m = work.pop();
+        if (!claimed.add(m)) continue;
+        SootClass cls = view.getClass(m.getDeclClassType()).orElse(null);
+        if (cls == null || cls.isLibraryClass()) continue;
+        preProcessingMethod(m, work, graph);
+        if (!graph.containsMethod(m)) graph.addMethod(m);
+        SootMethod sm = (SootMethod) cls
+          .getMethod(m.getSubSignature())
+          .orElse(null);
+        resolveAllCallsFromSourceMethod(sm, graph, work);
+        resolveAllImplicitCallsFromSourceMethod(sm, graph, work);
+        postProcessingMethod(m, work, graph);
+        resolved.add(m);
+      }
+      return new Partial(graph, resolved);
+    }
+  }
+}
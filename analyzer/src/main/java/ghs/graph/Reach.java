@@ -0,0 +1,20 @@
+package ghs.analyzer.graph;
+
+/**
+ * Nodi di un CompactCallGraph raggiunti da un singolo test. L'elenco non è per forza in
+ * ordine di scoperta: chi ne ha bisogno (pareggi su focal class/method) usa compareOrder,
+ * che riproduce l'ordine della BFS single-source di BfsTraverser.
+ */
+public interface Reach {
+  /** Numero di nodi raggiunti (partenza compresa). */
+  int size();
+
+  /** i-esimo nodo raggiunto. */
+  int node(int i);
+
+  /** Distanza dalla partenza; valida solo per nodi raggiunti. */
+  int depth(int node);
+
+  /** Ordine di scoperta tra due nodi raggiunti: negativo se a viene prima di b. */
+  int compareOrder(int a, int b);
+}
@@ -0,0 +1,151 @@
+package ghs.analyzer.graph;
+
+import java.util.*;
+import sootup.core.signatures.MethodSignature;
+
+/**
+ * Statistiche di un test raccolte in un solo passaggio sui metodi raggiunti, in ordine di
+ * scoperta: conteggi per CgStats, classi di progetto raggiunte (solo in modalità
+ * incremental), match per nome e classe a distanza minima per la focal class, metodi di
+ * ogni classe prod per il focal method e uso di mock. I nomi delle classi di progetto
+ * vengono dal ClassIndex, quindi nessun FQN viene ricostruito durante la visita.
+ *
+ * <p>I pareggi sono quelli dei passaggi separati su stream: il match per nome è il primo a
+ * distanza minima, la classe a distanza minima è la prima nell'ordine di una HashMap
+ * riempita come da groupingBy.
+ */
+final class ReachStats implements BfsTraverser.Visitor {
+
+  /** Classe prod raggiunta: distanza minima e metodi in ordine di scoperta. */
+  private static final class ProdClass {
+
+    int min;
+    final List<MethodSignature> methods = new ArrayList<>(4);
+
+    ProdClass(int min) {
+      this.min = min;
+    }
+  }
+
+  private final ClassIndex classes;
+  private final MockUsageDetector mocks;
+  /** Classi prod con il nome semplice della focal class candidata (ClassIndex). */
+  private final int[] byNameIds;
+  private final boolean transitiveMocks;
+  /** Classi raggiunte raccolte solo per le impronte della modalità incremental. */
+  private final boolean incremental;
+
+  private final Map<String, ProdClass> prod = new HashMap<>();
+  private final Set<String> reachedClasses = new HashSet<>();
+  private int projectTargets;
+  private int callsToLibraries;
+  private int maxDepthVisited;
+  private String byName;
+  private int byNameDepth;
+  private boolean mockCalls;
+
+  ReachStats(
+    ClassIndex classes,
+    MockUsageDetector mocks,
+    int[] byNameIds,
+    boolean transitiveMocks,
+    boolean incremental
+  ) {
+    this.classes = classes;
+    this.mocks = mocks;
+    this.byNameIds = byNameIds;
+    this.transitiveMocks = transitiveMocks;
+    this.incremental = incremental;
+  }
+
+  /** Ripassa una mappa di distanze già costruita, nel suo ordine. */
+  ReachStats replay(Map<MethodSignature, Integer> distance) {
+    for (Map.Entry<MethodSignature, Integer> e : distance.entrySet()) {
+      visit(e.getKey(), e.getValue());
+    }
+    return this;
+  }
+
+  @Override
+  public void visit(MethodSignature m, int depth) {
+    if (depth > maxDepthVisited) maxDepthVisited = depth;
+    // Diretti: a distanza 1 ci sono esattamente i callee del test
+    if (
+      !mockCalls && (transitiveMocks || depth == 1) && mocks.isMock(m)
+    ) mockCalls = true;
+    int id = classes.id(m.getDeclClassType());
+    byte kind = classes.kind(id);
+    if (kind == ClassIndex.LIB) {
+      callsToLibraries++;
+      return;
+    }
+    String name = classes.name(id);
+    if (incremental) reachedClasses.add(name);
+    if (kind != ClassIndex.PROD) return;
+    projectTargets++;
+    ProdClass c = prod.get(name);
+    if (c == null) prod.put(name, c = new ProdClass(depth));
+    else if (depth < c.min) c.min = depth;
+    c.methods.add(m);
+    if (
+      byNameIds.length > 0 &&
+      (byName == null || depth < byNameDepth) &&
+      Arrays.binarySearch(byNameIds, id) >= 0
+    ) {
+      byName = name;
+      byNameDepth = depth;
+    }
+  }
+
+  /** Classe del match per nome, altrimenti la prima a distanza minima, altrimenti candidate. */
+  String focalClass(String candidate) {
+    if (byName != null) return byName;
+    String best = null;
+    int bestMin = Integer.MAX_VALUE;
+    for (Map.Entry<String, ProdClass> e : prod.entrySet()) {
+      if (e.getValue().min < bestMin) {
+        best = e.getKey();
+        bestMin = e.getValue().min;
+      }
+    }
+    return best != null ? best : candidate;
+  }
+
+  /** Metodi raggiunti della classe, per distanza e poi in ordine di scoperta. */
+  List<MethodSignature> methodsOf(
+    String fqn,
+    Map<MethodSignature, Integer> distance
+  ) {
+    ProdClass c = prod.get(fqn);
+    if (c == null) return new ArrayList<>();
+    List<MethodSignature> sorted = new ArrayList<>(c.methods);
+    sorted.sort(Comparator.comparingInt(distance::get));
+    return sorted;
+  }
+
+  int projectTargets() {
+    return projectTargets;
+  }
+
+  int uniqueProjectClasses() {
+    return prod.size();
+  }
+
+  int callsToLibraries() {
+    return callsToLibraries;
+  }
+
+  int maxDepthVisited() {
+    return maxDepthVisited;
+  }
+
+  /** Classi non di libreria raggiunte; vuoto se non in modalità incremental. */
+  Set<String> reachedClasses() {
+    return reachedClasses;
+  }
+
+  /** Chiamate a classi di mocking: dirette, o entro la profondità se transitiveMocks. */
+  boolean mockCalls() {
+    return mockCalls;
+  }
+}
@@ -0,0 +1,165 @@
+package ghs.analyzer.graph;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Riassunti di raggiungibilità condivisi tra i test di un modulo. Per un metodo u non
+ * radice e un budget di r passi, R(u, r) è l'insieme (BitSet di ID) dei nodi raggiungibili
+ * da u in al più r chiamate con le regole di BfsTraverser: {u} se r = 0 o se u è di libreria
+ * con pruneLibs, altrimenti {u} più l'unione degli R(v, r - 1) sui successori. Gli helper
+ * chiamati da molti test vengono così esplorati una volta sola.
+ *
+ * <p>I livelli della BFS di un test si ottengono per unione sui successori della radice:
+ * L(k) = {radice} ∪ R(v, k - 1), e la distanza di un nodo è il primo k in cui compare.
+ * I riassunti valgono finché la lineage dello snapshot non cambia (vedi rebind). Sono
+ * thread-safe: un BitSet pubblicato nella cache non viene più modificato.
+ */
+public final class ReachSummaries {
+
+  /** Oltre questa profondità (ricorsione e numero di riassunti per nodo) si usa la BFS. */
+  public static final int MAX_DEPTH = 64;
+
+  private final boolean pruneLibs;
+  private final long budgetBytes;
+  private final Map<Long, BitSet> cache = new ConcurrentHashMap<>();
+  private final AtomicLong bytes = new AtomicLong();
+  private final ThreadLocal<SummaryReach> scratch = ThreadLocal.withInitial(
+    SummaryReach::new
+  );
+  private volatile CompactCallGraph g;
+
+  /** budgetMb limita la memoria dei BitSet in cache; oltre il limite reach restituisce null. */
+  public ReachSummaries(boolean pruneLibs, int budgetMb) {
+    this.pruneLibs = pruneLibs;
+    this.budgetBytes = budgetMb * 1024L * 1024L;
+  }
+
+  /** Aggancia un nuovo snapshot; la cache si svuota se la lineage è diversa. */
+  public synchronized void rebind(CompactCallGraph next) {
+    if (g == null || g.lineage() != next.lineage()) {
+      cache.clear();
+      bytes.set(0);
+    }
+    g = next;
+  }
+
+  /** Numero di riassunti in cache (per il log). */
+  public int size() {
+    return cache.size();
+  }
+
+  /**
+   * Nodi raggiunti dal test root, oppure null se il risultato dipenderebbe dall'ordine
+   * di visita (maxVisited raggiunto), se maxDepth supera MAX_DEPTH o se il budget è
+   * esaurito: il chiamante usa CompactBfs.
+   */
+  public Reach reach(int root, int maxDepth, int maxVisited) {
+    if (maxDepth > MAX_DEPTH || bytes.get() > budgetBytes) return null;
+    CompactCallGraph g = this.g;
+    SummaryReach r = scratch.get();
+    r.load(g, root, maxDepth);
+    if (r.size() >= maxVisited) return null;
+    return r;
+  }
+
+  private BitSet summary(CompactCallGraph g, int u, int r) {
+    long key = ((long) u << 32) | r;
+    BitSet cached = cache.get(key);
+    if (cached != null) return cached;
+    BitSet set = new BitSet();
+    set.set(u);
+    for (int e = g.firstEdge(u), end = g.endEdge(u); e < end; e++) {
+      int v = g.target(e);
+      if (isLeaf(g, v, r - 1)) set.set(v);
+      else set.or(summary(g, v, r - 1));
+    }
+    if (cache.putIfAbsent(key, set) == null) {
+      bytes.addAndGet(set.size() / 8 + 32);
+    }
+    return set;
+  }
+
+  /** Un nodo non radice con r passi residui non si espande. */
+  private boolean isLeaf(CompactCallGraph g, int u, int r) {
+    return (
+      r <= 0 ||
+      g.firstEdge(u) == g.endEdge(u) ||
+      (pruneLibs && g.kind(u) == CompactCallGraph.LIB)
+    );
+  }
+
+  /** Reach per thread costruita livello per livello dai riassunti. */
+  private final class SummaryReach implements Reach {
+
+    private int[] stamp = new int[0];
+    private int[] dist = new int[0];
+    private int[] list = new int[0];
+    private int gen = 0;
+    private int size = 0;
+    private final DiscoveryOrder order = new DiscoveryOrder();
+
+    void load(CompactCallGraph g, int root, int maxDepth) {
+      int n = g.nodeCount();
+      if (stamp.length < n) {
+        stamp = new int[n];
+        dist = new int[n];
+        list = new int[n];
+        gen = 0;
+      }
+      if (++gen == 0) {
+        Arrays.fill(stamp, 0);
+        gen = 1;
+      }
+      stamp[root] = gen;
+      dist[root] = 0;
+      list[0] = root;
+      size = 1;
+      for (int k = 1; k <= maxDepth; k++) {
+        int before = size;
+        for (int e = g.firstEdge(root), end = g.endEdge(root); e < end; e++) {
+          int v = g.target(e);
+          if (isLeaf(g, v, k - 1)) {
+            mark(v, k);
+          } else {
+            BitSet level = summary(g, v, k - 1);
+            for (int w = level.nextSetBit(0); w >= 0; w = level.nextSetBit(w + 1)) {
+              mark(w, k);
+            }
+          }
+        }
+        // Nessun nodo nuovo a distanza k: non ce ne saranno neanche oltre
+        if (size == before) break;
+      }
+      order.reset(g, pruneLibs, root, this, u -> stamp[u] == gen);
+    }
+
+    private void mark(int v, int d) {
+      if (stamp[v] == gen) return;
+      stamp[v] = gen;
+      dist[v] = d;
+      list[size++] = v;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public int node(int i) {
+      return list[i];
+    }
+
+    @Override
+    public int depth(int node) {
+      return dist[node];
+    }
+
+    @Override
+    public int compareOrder(int a, int b) {
+      return order.compare(a, b);
+    }
+  }
+}
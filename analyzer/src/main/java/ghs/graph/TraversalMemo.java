@@ -0,0 +1,191 @@
+package ghs.analyzer.graph;
+
+import ghs.analyzer.model.TestRecord;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import sootup.callgraph.CallGraph;
+import sootup.core.signatures.MethodSignature;
+import sootup.core.types.ClassType;
+
+/**
+ * Memo per un batch dei test con lo stesso corpo (test parametrizzati, generati o copiati).
+ * Nel CG un test è descritto per intero dai suoi archi uscenti: stessa sequenza di callee
+ * significa stessa BFS, a parte il nodo di partenza, e stesso uso di mock. La chiave è quindi
+ * la sequenza dei callee risolti, non l'hash del bytecode: due test con bytecode diverso ma
+ * stesse chiamate condividono giustamente il risultato.
+ *
+ * <p>Se anche la focal class candidata (dal nome della classe di test) coincide, il record si
+ * copia cambiando solo i campi identificativi; altrimenti si riusa solo la mappa delle
+ * distanze. Un test che raggiunge altri metodi della propria classe non entra nel memo, e
+ * non lo usa un test la cui classe compare tra quelle raggiunte: in quei casi il nodo di
+ * partenza cambierebbe la BFS.
+ *
+ * <p>Valido solo per il CG con cui è stato creato: gli archi di un CG che cresce tra un
+ * batch e l'altro (cgPerModule) possono cambiare ciò che è raggiungibile.
+ *
+ * <p>Le mappe delle distanze arrivano fino a maxVisited nodi, quindi il memo ne tiene il meno
+ * possibile: alla creazione i test del batch vengono raggruppati per sequenza di callee
+ * (prima per hash, senza allocare, poi per lista solo sulle collisioni di hash) e entrano
+ * solo le sequenze di almeno due test. Una voce viene rilasciata quando l'ultimo dei suoi
+ * test è stato analizzato.
+ */
+public final class TraversalMemo {
+
+  private final Map<MethodSignature, List<MethodSignature>> keys;
+  /** Test di ogni sequenza ancora da analizzare. */
+  private final Map<List<MethodSignature>, AtomicInteger> pending;
+  private final Map<List<MethodSignature>, Entry> byCallees =
+    new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+
+  private TraversalMemo(
+    Map<MethodSignature, List<MethodSignature>> keys,
+    Map<List<MethodSignature>, AtomicInteger> pending
+  ) {
+    this.keys = keys;
+    this.pending = pending;
+  }
+
+  /** Memo per i test indicati: solo quelli che condividono i callee con un altro. */
+  public static TraversalMemo of(CallGraph cg, List<MethodSignature> tests) {
+    Map<Integer, Integer> byHash = new HashMap<>();
+    int[] hashes = new int[tests.size()];
+    for (int i = 0; i < tests.size(); i++) {
+      MethodSignature t = tests.get(i);
+      if (!cg.containsMethod(t)) continue;
+      int h = 1;
+      for (CallGraph.Call call : cg.callsFrom(t)) {
+        h = 31 * h + call.getTargetMethodSignature().hashCode();
+      }
+      hashes[i] = h;
+      byHash.merge(h, 1, Integer::sum);
+    }
+    Map<MethodSignature, List<MethodSignature>> keys = new HashMap<>();
+    Map<List<MethodSignature>, AtomicInteger> pending = new HashMap<>();
+    for (int i = 0; i < tests.size(); i++) {
+      MethodSignature t = tests.get(i);
+      if (!cg.containsMethod(t) || byHash.get(hashes[i]) < 2) continue;
+      List<MethodSignature> callees = new ArrayList<>();
+      for (CallGraph.Call call : cg.callsFrom(t)) {
+        callees.add(call.getTargetMethodSignature());
+      }
+      keys.put(t, callees);
+      pending.computeIfAbsent(callees, k -> new AtomicInteger()).incrementAndGet();
+    }
+    // Hash uguali ma callee diversi: sequenze di un test solo
+    pending.values().removeIf(n -> n.get() < 2);
+    keys.values().removeIf(k -> !pending.containsKey(k));
+    return new TraversalMemo(keys, pending);
+  }
+
+  /** Sequenza dei callee del test, o null se nessun altro test del batch la condivide. */
+  List<MethodSignature> key(MethodSignature test) {
+    return keys.get(test);
+  }
+
+  /** Il test con questa sequenza è stato analizzato: all'ultimo la voce si libera. */
+  void release(List<MethodSignature> key) {
+    if (pending.get(key).decrementAndGet() == 0) byCallees.remove(key);
+  }
+
+  /** Voce utilizzabile dal test (classe testClass) o null. */
+  Entry lookup(List<MethodSignature> key, ClassType testClass) {
+    Entry e = byCallees.get(key);
+    if (e == null || e.otherClasses.contains(testClass)) return null;
+    hits.increment();
+    return e;
+  }
+
+  /** Registra la BFS di un test, se la partenza non vi compare che come radice. */
+  void store(
+    List<MethodSignature> key,
+    MethodSignature origin,
+    Map<MethodSignature, Integer> distance,
+    String candidate,
+    TestRecord record
+  ) {
+    Set<ClassType> others = new HashSet<>();
+    for (MethodSignature m : distance.keySet()) {
+      if (m.equals(origin)) continue;
+      if (m.getDeclClassType().equals(origin.getDeclClassType())) return;
+      others.add(m.getDeclClassType());
+    }
+    Entry e = new Entry(origin, distance, others);
+    e.records.put(candidate, record);
+    byCallees.putIfAbsent(key, e);
+  }
+
+  /** Test risolti dal memo invece che con una nuova BFS. */
+  public long hits() {
+    return hits.sum();
+  }
+
+  static final class Entry {
+
+    private final MethodSignature origin;
+    private final Map<MethodSignature, Integer> distance;
+    private final Set<ClassType> otherClasses;
+    /** Record già calcolati per focal class candidata. */
+    private final Map<String, TestRecord> records = new ConcurrentHashMap<>();
+
+    private Entry(
+      MethodSignature origin,
+      Map<MethodSignature, Integer> distance,
+      Set<ClassType> otherClasses
+    ) {
+      this.origin = origin;
+      this.distance = distance;
+      this.otherClasses = otherClasses;
+    }
+
+    /** Record per la stessa focal class candidata, con i campi del test indicato. */
+    TestRecord record(
+      String candidate,
+      String repoName,
+      String module,
+      String cfgId,
+      String testClass,
+      String testMethod
+    ) {
+      TestRecord r = records.get(candidate);
+      if (r == null) return null;
+      Set<String> reached = r.reachedClasses();
+      if (!reached.isEmpty() && !r.testClass().equals(testClass)) {
+        reached = new HashSet<>(reached);
+        reached.remove(r.testClass());
+        reached.add(testClass);
+      }
+      return new TestRecord(
+        repoName,
+        module,
+        cfgId,
+        testClass,
+        testMethod,
+        r.focalClass(),
+        r.focalMethod(),
+        r.cgStats(),
+        r.usesMocks(),
+        r.unitIntegrationScore(),
+        reached
+      );
+    }
+
+    void putRecord(String candidate, TestRecord r) {
+      records.putIfAbsent(candidate, r);
+    }
+
+    /** Distanze come dalla BFS di start: start al posto della partenza originale. */
+    Map<MethodSignature, Integer> distanceFrom(MethodSignature start) {
+      Map<MethodSignature, Integer> d = new LinkedHashMap<>(
+        (int) (distance.size() / 0.75f) + 1
+      );
+      d.put(start, 0);
+      for (Map.Entry<MethodSignature, Integer> e : distance.entrySet()) {
+        if (!e.getKey().equals(origin)) d.putIfAbsent(e.getKey(), e.getValue());
+      }
+      return d;
+    }
+  }
+}
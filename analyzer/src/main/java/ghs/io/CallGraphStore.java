@@ -0,0 +1,15 @@
+package ghs.analyzer.io;
+
+import java.nio.file.Path;
+import sootup.callgraph.CallGraph;
+import sootup.callgraph.MutableCallGraph;
+
+public interface CallGraphStore {
+  /** Chiave del contenuto del modulo: cambia se cambiano le classi o gli input del CG. */
+  String key(ClassInventory inventory, boolean useJars);
+
+  /** Archi salvati per la chiave data, oppure null se assenti o non validi. */
+  MutableCallGraph load(Path module, String key);
+
+  void save(Path module, String key, CallGraph cg);
+}
@@ -0,0 +1,240 @@
+package ghs.analyzer.io;
+
+import ghs.analyzer.util.PathUtil;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+
+/**
+ * Inventario delle class file di un modulo (target/classes e target/test-classes) costruito
+ * con una sola visita parallela delle directory: FQN, file e dimensione di ogni classe.
+ * Lo usano l'indice delle classi, le view SootUp (vedi InventoryInputLocation) e le cache
+ * su disco, che altrimenti rifarebbero ciascuna la propria Files.walk. Gli hash del
+ * contenuto si calcolano (in parallelo) solo alla prima richiesta.
+ */
+public final class ClassInventory {
+
+  /** Una class file: FQN, percorso relativo alla radice, file e dimensione in byte. */
+  public record Entry(String fqn, String relPath, Path file, long size) {}
+
+  private final Path prodRoot;
+  private final Path testRoot;
+  private final List<Entry> prod;
+  private final List<Entry> test;
+  private volatile Map<Path, String> fileHashes;
+
+  private ClassInventory(
+    Path prodRoot,
+    Path testRoot,
+    List<Entry> prod,
+    List<Entry> test
+  ) {
+    this.prodRoot = prodRoot;
+    this.testRoot = testRoot;
+    this.prod = prod;
+    this.test = test;
+  }
+
+  public static ClassInventory scan(Path prodRoot, Path testRoot)
+    throws IOException {
+    try {
+      return new ClassInventory(
+        prodRoot,
+        testRoot,
+        scanRoot(prodRoot),
+        scanRoot(testRoot)
+      );
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /** Numero di class file sotto le radici (assenti = 0), senza costruire le voci. */
+  public static long count(Path... roots) throws IOException {
+    long[] n = { 0 };
+    for (Path root : roots) {
+      if (!Files.isDirectory(root)) continue;
+      Files.walkFileTree(
+        root,
+        new SimpleFileVisitor<>() {
+          @Override
+          public FileVisitResult visitFile(Path p, BasicFileAttributes a) {
+            if (
+              p.toString().endsWith(".class") &&
+              (a.isRegularFile() ||
+                (a.isSymbolicLink() && Files.isRegularFile(p)))
+            ) n[0]++;
+            return FileVisitResult.CONTINUE;
+          }
+        }
+      );
+    }
+    return n[0];
+  }
+
+  public Path prodRoot() {
+    return prodRoot;
+  }
+
+  public Path testRoot() {
+    return testRoot;
+  }
+
+  /** Class file di prod, ordinate per percorso relativo. */
+  public List<Entry> prodEntries() {
+    return prod;
+  }
+
+  public List<Entry> testEntries() {
+    return test;
+  }
+
+  public Set<String> prodClasses() {
+    return prod.stream().map(Entry::fqn).collect(Collectors.toSet());
+  }
+
+  public Set<String> testClasses() {
+    return test.stream().map(Entry::fqn).collect(Collectors.toSet());
+  }
+
+  public int size() {
+    return prod.size() + test.size();
+  }
+
+  public long totalBytes() {
+    long sum = 0;
+    for (Entry e : prod) sum += e.size();
+    for (Entry e : test) sum += e.size();
+    return sum;
+  }
+
+  /**
+   * Hash del contenuto per FQN. Se la stessa FQN è sia in prod sia in test contano
+   * entrambe le class file (prima prod).
+   */
+  public Map<String, String> classHashes() {
+    Map<Path, String> h = fileHashes();
+    Map<String, String> out = new HashMap<>(size() * 2);
+    for (Entry e : prod) out.merge(e.fqn(), h.get(e.file()), String::concat);
+    for (Entry e : test) out.merge(e.fqn(), h.get(e.file()), String::concat);
+    return out;
+  }
+
+  /** Impronta dell'intero modulo: percorsi relativi e contenuto di tutte le class file. */
+  public String fingerprint() {
+    Map<Path, String> h = fileHashes();
+    StringBuilder sb = new StringBuilder();
+    sb.append("#classes\n");
+    for (Entry e : prod) sb
+      .append(e.relPath())
+      .append('=')
+      .append(h.get(e.file()))
+      .append('\n');
+    sb.append("#test-classes\n");
+    for (Entry e : test) sb
+      .append(e.relPath())
+      .append('=')
+      .append(h.get(e.file()))
+      .append('\n');
+    return sha256(sb.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private Map<Path, String> fileHashes() {
+    Map<Path, String> h = fileHashes;
+    if (h != null) return h;
+    synchronized (this) {
+      if (fileHashes == null) {
+        List<Entry> all = new ArrayList<>(prod);
+        all.addAll(test);
+        fileHashes = all
+          .parallelStream()
+          .collect(
+            Collectors.toConcurrentMap(Entry::file, e -> {
+              try {
+                return sha256(Files.readAllBytes(e.file()));
+              } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+              }
+            })
+          );
+      }
+      return fileHashes;
+    }
+  }
+
+  /** SHA-256 troncato a 128 bit (32 cifre esadecimali). */
+  public static String sha256(byte[] data) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(md.digest(data), 0, 16);
+    } catch (java.security.NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static List<Entry> scanRoot(Path root) {
+    if (!Files.isDirectory(root)) return List.of();
+    List<Entry> out = ForkJoinPool.commonPool().invoke(new DirTask(root, root));
+    out.sort(Comparator.comparing(Entry::relPath));
+    return out;
+  }
+
+  /** Visita di una directory: le sottodirectory diventano task paralleli. */
+  private static final class DirTask extends RecursiveTask<List<Entry>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Path root;
+    private final Path dir;
+
+    DirTask(Path root, Path dir) {
+      this.root = root;
+      this.dir = dir;
+    }
+
+    @Override
+    protected List<Entry> compute() {
+      List<Entry> out = new ArrayList<>();
+      List<DirTask> subs = new ArrayList<>();
+      try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+        for (Path p : ds) {
+          BasicFileAttributes a = Files.readAttributes(
+            p,
+            BasicFileAttributes.class,
+            LinkOption.NOFOLLOW_LINKS
+          );
+          if (a.isDirectory()) {
+            DirTask t = new DirTask(root, p);
+            t.fork();
+            subs.add(t);
+            continue;
+          }
+          if (!p.toString().endsWith(".class")) continue;
+          if (a.isSymbolicLink()) {
+            if (!Files.isRegularFile(p)) continue;
+            a = Files.readAttributes(p, BasicFileAttributes.class);
+          } else if (!a.isRegularFile()) continue;
+          out.add(
+            new Entry(
+              PathUtil.toFqn(root, p),
+              root.relativize(p).toString(),
+              p,
+              a.size()
+            )
+          );
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      for (DirTask t : subs) out.addAll(t.join());
+      return out;
+    }
+  }
+}
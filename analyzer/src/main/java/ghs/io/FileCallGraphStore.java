@@ -0,0 +1,156 @@
+package ghs.analyzer.io;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+import sootup.callgraph.CallGraph;
+import sootup.callgraph.GraphBasedCallGraph;
+import sootup.callgraph.MutableCallGraph;
+import sootup.core.signatures.MethodSignature;
+import sootup.java.core.JavaIdentifierFactory;
+
+/**
+ * Cache su disco degli archi risolti di un modulo, in target/analyzer-cache/. Il file
+ * contiene la chiave, la tabella delle firme e per ogni metodo gli indici dei chiamati
+ * nell'ordine di callsFrom (senza duplicati), compresso con gzip.
+ *
+ * <p>La chiave è l'impronta dell'inventario del modulo (percorso relativo e contenuto
+ * delle class file di target/classes e target/test-classes), della versione della JVM (le
+ * classi JRT entrano nella gerarchia CHA) e di useJars. Gli archi uscenti di un metodo
+ * dipendono solo dalla view, quindi maxDepth, maxVisited, pruneLibs e batchSize non fanno
+ * parte della chiave.
+ */
+public final class FileCallGraphStore implements CallGraphStore {
+
+  private static final int MAGIC = 0x47485343; // "GHSC"
+  private static final int VERSION = 2;
+
+  private Path file(Path module) {
+    return module
+      .resolve("target")
+      .resolve("analyzer-cache")
+      .resolve("callgraph.bin");
+  }
+
+  @Override
+  public String key(ClassInventory inventory, boolean useJars) {
+    return ClassInventory.sha256(
+      (VERSION +
+        "|" +
+        System.getProperty("java.runtime.version") +
+        "|" +
+        useJars +
+        "|" +
+        inventory.fingerprint()).getBytes(StandardCharsets.UTF_8)
+    );
+  }
+
+  @Override
+  public MutableCallGraph load(Path module, String key) {
+    Path f = file(module);
+    if (!Files.isRegularFile(f)) return null;
+    try (
+      DataInputStream in = new DataInputStream(
+        new BufferedInputStream(new GZIPInputStream(Files.newInputStream(f)))
+      )
+    ) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+      if (!key.equals(in.readUTF())) return null;
+      JavaIdentifierFactory ids = JavaIdentifierFactory.getInstance();
+      int n = in.readInt();
+      MethodSignature[] methods = new MethodSignature[n];
+      MutableCallGraph cg = new GraphBasedCallGraph(new ArrayList<>());
+      for (int i = 0; i < n; i++) {
+        methods[i] = ids.parseMethodSignature(in.readUTF());
+        cg.addMethod(methods[i]);
+      }
+      for (int i = 0; i < n; i++) {
+        int calls = in.readInt();
+        for (int k = 0; k < calls; k++) {
+          cg.addCall(new StoredCall(methods[i], methods[in.readInt()]));
+        }
+      }
+      return cg;
+    } catch (Exception e) {
+      System.out.println(
+        " (warn) cache call graph illeggibile: " + e.getMessage()
+      );
+      return null;
+    }
+  }
+
+  @Override
+  public void save(Path module, String key, CallGraph cg) {
+    Path f = file(module);
+    try {
+      Files.createDirectories(f.getParent());
+      Path tmp = f.resolveSibling(f.getFileName() + ".tmp");
+      List<MethodSignature> methods = new ArrayList<>(cg.getMethodSignatures());
+      Map<MethodSignature, Integer> index = new HashMap<>(methods.size() * 2);
+      for (MethodSignature ms : methods) index.put(ms, index.size());
+      try (
+        DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(
+            new GZIPOutputStream(Files.newOutputStream(tmp))
+          )
+        )
+      ) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(key);
+        out.writeInt(methods.size());
+        for (MethodSignature ms : methods) out.writeUTF(ms.toString());
+        for (MethodSignature ms : methods) {
+          Set<Integer> targets = new LinkedHashSet<>();
+          for (CallGraph.Call call : cg.callsFrom(ms)) {
+            targets.add(index.get(call.getTargetMethodSignature()));
+          }
+          out.writeInt(targets.size());
+          for (int t : targets) out.writeInt(t);
+        }
+      }
+      Files.move(
+        tmp,
+        f,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE
+      );
+    } catch (Exception e) {
+      System.out.println(
+        " (warn) salvataggio cache call graph fallito: " + e.getMessage()
+      );
+    }
+  }
+
+  /**
+   * Arco letto dalla cache: lo statement di invocazione non viene salvato, quindi
+   * uguaglianza e hash usano solo chiamante e chiamato (un arco per coppia).
+   */
+  private static final class StoredCall extends CallGraph.Call {
+
+    StoredCall(MethodSignature source, MethodSignature target) {
+      super(source, target, null);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return (
+        o instanceof StoredCall c &&
+        getSourceMethodSignature().equals(c.getSourceMethodSignature()) &&
+        getTargetMethodSignature().equals(c.getTargetMethodSignature())
+      );
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(getSourceMethodSignature(), getTargetMethodSignature());
+    }
+
+    @Override
+    public String toString() {
+      return getSourceMethodSignature() + " -> " + getTargetMethodSignature();
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package ghs.analyzer.io;
+
+import ghs.analyzer.model.*;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/** Store incrementale in target/analyzer-incremental-&lt;cfgId&gt;.jsonl, una voce per riga. */
+public final class FileIncrementalStore implements IncrementalStore {
+
+  private Path file(Path module, String cfgId) {
+    return module
+      .resolve("target")
+      .resolve("analyzer-incremental-" + cfgId + ".jsonl");
+  }
+
+  @Override
+  public Map<String, IncrementalEntry> load(Path module, String cfgId) {
+    Path f = file(module, cfgId);
+    Map<String, IncrementalEntry> out = new LinkedHashMap<>();
+    if (!Files.isRegularFile(f)) return out;
+    try {
+      for (String line : Files.readAllLines(f, StandardCharsets.UTF_8)) {
+        if (line.isBlank()) continue;
+        IncrementalEntry e = fromJson(new JSONObject(line));
+        out.put(e.testKey(), e);
+      }
+    } catch (Exception e) {
+      System.out.println(
+        " (warn) impossibile leggere store incrementale: " + e.getMessage()
+      );
+      out.clear();
+    }
+    return out;
+  }
+
+  @Override
+  public synchronized void append(
+    Path module,
+    String cfgId,
+    List<IncrementalEntry> entries
+  ) {
+    if (entries.isEmpty()) return;
+    Path f = file(module, cfgId);
+    try {
+      Files.createDirectories(f.getParent());
+      try (
+        BufferedWriter w = Files.newBufferedWriter(
+          f,
+          StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND
+        )
+      ) {
+        for (IncrementalEntry e : entries) {
+          w.write(toJson(e).toString());
+          w.write("\n");
+        }
+      }
+    } catch (Exception e) {
+      System.out.println(
+        " (warn) append store incrementale fallito: " + e.getMessage()
+      );
+    }
+  }
+
+  @Override
+  public synchronized void rewrite(
+    Path module,
+    String cfgId,
+    Collection<IncrementalEntry> entries
+  ) {
+    Path f = file(module, cfgId);
+    try {
+      Files.createDirectories(f.getParent());
+      Path tmp = f.resolveSibling(f.getFileName() + ".tmp");
+      try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+        for (IncrementalEntry e : entries) {
+          w.write(toJson(e).toString());
+          w.write("\n");
+        }
+      }
+      Files.move(
+        tmp,
+        f,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE
+      );
+    } catch (Exception e) {
+      System.out.println(
+        " (warn) riscrittura store incrementale fallita: " + e.getMessage()
+      );
+    }
+  }
+
+  @Override
+  public void reset(Path module, String cfgId) {
+    try {
+      Files.deleteIfExists(file(module, cfgId));
+    } catch (Exception ignored) {}
+  }
+
+  private static JSONObject toJson(IncrementalEntry e) {
+    TestRecord r = e.record();
+    CgStats s = r.cgStats();
+    return new JSONObject()
+      .put("test", e.testKey())
+      .put("fingerprint", e.fingerprint())
+      .put("classes", new JSONArray(e.classes()))
+      .put("testClass", r.testClass())
+      .put("testMethod", r.testMethod())
+      .put("focalClass", r.focalClass())
+      .put("focalMethod", r.focalMethod())
+      .put(
+        "cgStats",
+        new JSONArray(
+          List.of(
+            s.projectCalls(),
+            s.callsToFocalClass(),
+            s.callsToOtherProjectClasses(),
+            s.callsToLibraries(),
+            s.uniqueProjectClasses(),
+            s.maxDepthVisited()
+          )
+        )
+      )
+      .put("usesMocks", r.usesMocks())
+      .put("score", r.unitIntegrationScore());
+  }
+
+  /** repo, module e cfgId non vengono salvati: li rimette il chiamante. */
+  private static IncrementalEntry fromJson(JSONObject o) {
+    List<String> classes = new ArrayList<>();
+    JSONArray cs = o.getJSONArray("classes");
+    for (int i = 0; i < cs.length(); i++) classes.add(cs.getString(i));
+    JSONArray s = o.getJSONArray("cgStats");
+    TestRecord r = new TestRecord(
+      "",
+      "",
+      "",
+      o.getString("testClass"),
+      o.getString("testMethod"),
+      o.getString("focalClass"),
+      o.getString("focalMethod"),
+      new CgStats(
+        s.getInt(0),
+        s.getInt(1),
+        s.getInt(2),
+        s.getInt(3),
+        s.getInt(4),
+        s.getInt(5)
+      ),
+      o.getBoolean("usesMocks"),
+      o.getDouble("score"),
+      new HashSet<>(classes)
+    );
+    return new IncrementalEntry(
+      o.getString("test"),
+      o.getString("fingerprint"),
+      classes,
+      r
+    );
+  }
+}
@@ -27,7 +27,7 @@ public final class FileProgressStore implements ProgressStore {
   }
 
   @Override
-  public void append(Path module, String cfgId, String key) {
+  public synchronized void append(Path module, String cfgId, String key) {
     Path f = file(module, cfgId);
     try {
       Files.createDirectories(f.getParent());
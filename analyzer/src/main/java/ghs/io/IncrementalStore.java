@@ -0,0 +1,15 @@
+package ghs.analyzer.io;
+
+import ghs.analyzer.model.IncrementalEntry;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public interface IncrementalStore {
+  /** Ultima voce salvata per ogni test (chiave testClass#testMethod). */
+  Map<String, IncrementalEntry> load(Path module, String cfgId);
+  void append(Path module, String cfgId, List<IncrementalEntry> entries);
+  /** Riscrive lo store con le sole voci date (a fine modulo, per eliminare duplicati e test rimossi). */
+  void rewrite(Path module, String cfgId, java.util.Collection<IncrementalEntry> entries);
+  void reset(Path module, String cfgId);
+}
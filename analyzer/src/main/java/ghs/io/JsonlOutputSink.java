@@ -4,7 +4,6 @@ import ghs.analyzer.model.*;
 import java.io.BufferedWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import org.json.JSONObject;
 
 public final class JsonlOutputSink implements OutputSink {
 
@@ -13,6 +12,7 @@ public final class JsonlOutputSink implements OutputSink {
   private final Path outPath;
   private final java.util.Map<String, BufferedWriter> byRepo =
     new java.util.HashMap<>();
+  private final JsonlRecordEncoder encoder = new JsonlRecordEncoder();
 
   public JsonlOutputSink(AnalysisConfig cfg) throws Exception {
     this.splitByRepo = cfg.splitByRepo();
@@ -42,34 +42,12 @@ public final class JsonlOutputSink implements OutputSink {
   }
 
   @Override
-  public void write(TestRecord r) throws Exception {
-    JSONObject row = new JSONObject()
-      .put("repo", r.repo())
-      .put("module", r.module())
-      .put("cfgId", r.cfgId())
-      .put("testClass", r.testClass())
-      .put("testMethod", r.testMethod())
-      .put("focalClass", r.focalClass())
-      .put("focalMethod", r.focalMethod())
-      .put(
-        "cgStats",
-        new JSONObject()
-          .put("projectCalls", r.cgStats().projectCalls())
-          .put("callsToFocalClass", r.cgStats().callsToFocalClass())
-          .put(
-            "callsToOtherProjectClasses",
-            r.cgStats().callsToOtherProjectClasses()
-          )
-          .put("callsToLibraries", r.cgStats().callsToLibraries())
-          .put("uniqueProjectClasses", r.cgStats().uniqueProjectClasses())
-          .put("maxDepthVisited", r.cgStats().maxDepthVisited())
-      )
-      .put("usesMocks", r.usesMocks())
-      .put("unit_integration_score", r.unitIntegrationScore());
-
+  public synchronized void write(TestRecord r) throws Exception {
+    // Stesso testo di JSONObject.toString(), senza mappe né stringhe intermedie
+    encoder.encode(r);
     if (!splitByRepo) {
-      writer.write(row.toString());
-      writer.write("\n");
+      encoder.writeTo(writer);
+      writer.write('\n');
     } else {
       BufferedWriter w = byRepo.computeIfAbsent(r.repo(), repo -> {
         try {
@@ -84,13 +62,19 @@ public final class JsonlOutputSink implements OutputSink {
           throw new RuntimeException(e);
         }
       });
-      w.write(row.toString());
-      w.write("\n");
+      encoder.writeTo(w);
+      w.write('\n');
     }
   }
 
   @Override
-  public void close() throws Exception {
+  public synchronized void flush() throws Exception {
+    if (writer != null) writer.flush();
+    for (BufferedWriter w : byRepo.values()) w.flush();
+  }
+
+  @Override
+  public synchronized void close() throws Exception {
     if (writer != null) writer.close();
     for (BufferedWriter w : byRepo.values()) try {
       w.close();
@@ -0,0 +1,185 @@
+package ghs.analyzer.io;
+
+import ghs.analyzer.model.*;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Riga JSONL di un TestRecord scritta direttamente in un buffer di caratteri riusato, senza
+ * JSONObject intermedi. Il testo è identico a quello di JSONObject.toString() per gli
+ * stessi put: chiavi nell'ordine di iterazione della HashMap di org.json (fisso per queste
+ * chiavi), stringhe null omesse come fa put, escape di JSONObject.quote (compreso "<\/" e
+ * \\u per i caratteri di controllo) e numeri come numberToString (zeri finali tolti, 1.0 →
+ * 1). Non thread-safe: un encoder per sink.
+ */
+final class JsonlRecordEncoder {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private char[] buf = new char[512];
+  private int len;
+  private boolean first;
+
+  /** Codifica il record (senza a capo) al posto del contenuto precedente. */
+  JsonlRecordEncoder encode(TestRecord r) {
+    len = 0;
+    CgStats s = r.cgStats();
+    if (!Double.isFinite(r.unitIntegrationScore())) throw new IllegalArgumentException(
+      "unit_integration_score non finito: " + r.unitIntegrationScore()
+    );
+
+    open();
+    key("unit_integration_score");
+    number(r.unitIntegrationScore());
+    string("repo", r.repo());
+    string("module", r.module());
+    string("testMethod", r.testMethod());
+    key("cgStats");
+    open();
+    key("projectCalls");
+    number(s.projectCalls());
+    key("uniqueProjectClasses");
+    number(s.uniqueProjectClasses());
+    key("callsToFocalClass");
+    number(s.callsToFocalClass());
+    key("maxDepthVisited");
+    number(s.maxDepthVisited());
+    key("callsToLibraries");
+    number(s.callsToLibraries());
+    key("callsToOtherProjectClasses");
+    number(s.callsToOtherProjectClasses());
+    close();
+    string("cfgId", r.cfgId());
+    string("testClass", r.testClass());
+    key("usesMocks");
+    raw(r.usesMocks() ? "true" : "false");
+    string("focalClass", r.focalClass());
+    string("focalMethod", r.focalMethod());
+    close();
+    return this;
+  }
+
+  void writeTo(Writer w) throws IOException {
+    w.write(buf, 0, len);
+  }
+
+  @Override
+  public String toString() {
+    return new String(buf, 0, len);
+  }
+
+  // ================= helpers =================
+
+  private void open() {
+    put('{');
+    first = true;
+  }
+
+  private void close() {
+    put('}');
+    first = false;
+  }
+
+  private void key(String k) {
+    if (!first) put(',');
+    first = false;
+    quote(k);
+    put(':');
+  }
+
+  private void string(String k, String v) {
+    if (v == null) return;
+    key(k);
+    quote(v);
+  }
+
+  private void quote(String s) {
+    put('"');
+    char c = 0;
+    for (int i = 0, n = s.length(); i < n; i++) {
+      char b = c;
+      c = s.charAt(i);
+      switch (c) {
+        case '\\', '"' -> {
+          put('\\');
+          put(c);
+        }
+        case '/' -> {
+          if (b == '<') put('\\');
+          put(c);
+        }
+        case '\b' -> raw("\\b");
+        case '\t' -> raw("\\t");
+        case '\n' -> raw("\\n");
+        case '\f' -> raw("\\f");
+        case '\r' -> raw("\\r");
+        default -> {
+          if (
+            c < ' ' ||
+            (c >= '\u0080' && c < '\u00a0') ||
+            (c >= '\u2000' && c < '\u2100')
+          ) {
+            raw("\\u");
+            put(HEX[(c >> 12) & 0xf]);
+            put(HEX[(c >> 8) & 0xf]);
+            put(HEX[(c >> 4) & 0xf]);
+            put(HEX[c & 0xf]);
+          } else {
+            put(c);
+          }
+        }
+      }
+    }
+    put('"');
+  }
+
+  private void number(int v) {
+    if (v == Integer.MIN_VALUE) {
+      raw("-2147483648");
+      return;
+    }
+    if (v < 0) {
+      put('-');
+      v = -v;
+    }
+    int digits = 1;
+    for (int t = v; t >= 10; t /= 10) digits++;
+    ensure(digits);
+    for (int i = len + digits - 1; i >= len; i--, v /= 10) {
+      buf[i] = (char) ('0' + v % 10);
+    }
+    len += digits;
+  }
+
+  /** Come JSONObject.numberToString: senza esponente si tolgono zeri e punto finali. */
+  private void number(double v) {
+    String s = Double.toString(v);
+    int end = s.length();
+    if (s.indexOf('.') > 0 && s.indexOf('e') < 0 && s.indexOf('E') < 0) {
+      while (s.charAt(end - 1) == '0') end--;
+      if (s.charAt(end - 1) == '.') end--;
+    }
+    ensure(end);
+    s.getChars(0, end, buf, len);
+    len += end;
+  }
+
+  private void raw(String s) {
+    ensure(s.length());
+    s.getChars(0, s.length(), buf, len);
+    len += s.length();
+  }
+
+  private void put(char c) {
+    ensure(1);
+    buf[len++] = c;
+  }
+
+  private void ensure(int extra) {
+    if (len + extra > buf.length) buf = Arrays.copyOf(
+      buf,
+      Math.max(buf.length * 2, len + extra)
+    );
+  }
+}
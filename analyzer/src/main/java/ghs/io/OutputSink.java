@@ -5,6 +5,9 @@ import ghs.analyzer.model.TestRecord;
 public interface OutputSink extends AutoCloseable {
   void write(TestRecord rec) throws Exception;
 
+  /** Rende persistenti i record scritti finora (chiamato prima di aggiornare il progress). */
+  default void flush() throws Exception {}
+
   @Override
   default void close() throws Exception {}
 }
@@ -0,0 +1,225 @@
+package ghs.analyzer.io;
+
+import ghs.analyzer.model.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Framing binario tra coordinatore e worker remoti: ogni frame è [tipo:1 byte][lunghezza:varint]
+ * [payload]. Gli interi sono varint (zigzag), le stringhe passano da una tabella per
+ * direzione e per connessione: la prima occorrenza viaggia per esteso, le successive come
+ * indice (cfgId, classi di test e focal class si ripetono quasi sempre). repo e module non
+ * viaggiano: li rimette il coordinatore, che sa quale modulo ha assegnato.
+ */
+public final class RecordFrames {
+
+  /** worker → coordinatore: pronto per un modulo. */
+  public static final int READY = 1;
+  /** coordinatore → worker: percorso del modulo relativo a baseDir. */
+  public static final int MODULE = 2;
+  /** coordinatore → worker: coda vuota, il worker può terminare. */
+  public static final int NO_MORE = 3;
+  /** worker → coordinatore: un TestRecord del modulo in corso. */
+  public static final int RECORD = 4;
+  /** worker → coordinatore: modulo finito. */
+  public static final int DONE = 5;
+  /** worker → coordinatore: errore non di memoria (messaggio). */
+  public static final int ERROR = 6;
+  /** worker → coordinatore: OutOfMemoryError, dopo cui il worker termina. */
+  public static final int OOM = 7;
+  /** worker → coordinatore: fine di un batch, i record precedenti vanno resi persistenti. */
+  public static final int FLUSHED = 8;
+  /** worker → coordinatore: il worker è vivo, inviato ogni HEARTBEAT_S secondi. */
+  public static final int HEARTBEAT = 9;
+
+  /** Intervallo dei HEARTBEAT, indipendente dalla durata dei batch. */
+  public static final int HEARTBEAT_S = 10;
+
+  /** Oltre questo numero di voci la tabella non cresce e le stringhe viaggiano per esteso. */
+  private static final int MAX_STRINGS = 1 << 16;
+  private static final int MAX_FRAME = 1 << 24;
+
+  private RecordFrames() {}
+
+  /** Lato scrittura di una connessione; i metodi sono sincronizzati per frame. */
+  public static final class Writer {
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final ByteArrayOutputStream buf = new ByteArrayOutputStream(256);
+
+    public Writer(OutputStream out) {
+      this.out = new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    public synchronized void signal(int type) throws IOException {
+      frame(type);
+    }
+
+    public synchronized void text(int type, String text) throws IOException {
+      buf.reset();
+      string(text);
+      frame(type);
+    }
+
+    public synchronized void record(TestRecord r) throws IOException {
+      buf.reset();
+      CgStats s = r.cgStats();
+      string(r.cfgId());
+      string(r.testClass());
+      string(r.testMethod());
+      string(r.focalClass());
+      string(r.focalMethod());
+      varint(s.projectCalls());
+      varint(s.callsToFocalClass());
+      varint(s.callsToOtherProjectClasses());
+      varint(s.callsToLibraries());
+      varint(s.uniqueProjectClasses());
+      varint(s.maxDepthVisited());
+      buf.write(r.usesMocks() ? 1 : 0);
+      long bits = Double.doubleToLongBits(r.unitIntegrationScore());
+      for (int i = 56; i >= 0; i -= 8) buf.write((int) (bits >>> i));
+      frame(RECORD);
+    }
+
+    public synchronized void flush() throws IOException {
+      out.flush();
+    }
+
+    private void frame(int type) throws IOException {
+      out.writeByte(type);
+      writeVarint(out, buf.size());
+      buf.writeTo(out);
+      buf.reset();
+    }
+
+    /** 0 = null, 1 = nuova stringa (lunghezza + UTF-8), k >= 2 = voce k-2 della tabella. */
+    private void string(String s) throws IOException {
+      if (s == null) {
+        writeVarint(buf, 0);
+        return;
+      }
+      Integer idx = strings.get(s);
+      if (idx != null) {
+        writeVarint(buf, idx + 2);
+        return;
+      }
+      if (strings.size() < MAX_STRINGS) strings.put(s, strings.size());
+      byte[] b = s.getBytes(StandardCharsets.UTF_8);
+      writeVarint(buf, 1);
+      writeVarint(buf, b.length);
+      buf.write(b, 0, b.length);
+    }
+
+    private void varint(int v) throws IOException {
+      writeVarint(buf, (v << 1) ^ (v >> 31));
+    }
+  }
+
+  /** Lato lettura di una connessione (un solo thread). */
+  public static final class Reader {
+
+    private final DataInputStream in;
+    private final List<String> strings = new ArrayList<>();
+    private ByteArrayInputStream payload;
+
+    public Reader(InputStream in) {
+      this.in = new DataInputStream(new BufferedInputStream(in));
+    }
+
+    /** Tipo del prossimo frame (payload da text/record); EOFException a connessione chiusa. */
+    public int next() throws IOException {
+      int type = in.readUnsignedByte();
+      int length = readVarint(in);
+      if (length > MAX_FRAME) throw new IOException("frame troppo grande: " + length);
+      byte[] b = new byte[length];
+      in.readFully(b);
+      payload = new ByteArrayInputStream(b);
+      return type;
+    }
+
+    /** Testo di un frame MODULE/ERROR appena letto. */
+    public String text() throws IOException {
+      return string();
+    }
+
+    /** Record di un frame RECORD appena letto; repo e module li imposta il chiamante. */
+    public TestRecord record(String repo, String module) throws IOException {
+      String cfgId = string();
+      String testClass = string();
+      String testMethod = string();
+      String focalClass = string();
+      String focalMethod = string();
+      CgStats stats = new CgStats(
+        varint(),
+        varint(),
+        varint(),
+        varint(),
+        varint(),
+        varint()
+      );
+      boolean usesMocks = payload.read() == 1;
+      long bits = 0;
+      for (int i = 0; i < 8; i++) bits = (bits << 8) | next8();
+      return new TestRecord(
+        repo,
+        module,
+        cfgId,
+        testClass,
+        testMethod,
+        focalClass,
+        focalMethod,
+        stats,
+        usesMocks,
+        Double.longBitsToDouble(bits),
+        new HashSet<>()
+      );
+    }
+
+    private String string() throws IOException {
+      int tag = readVarint(payload);
+      if (tag == 0) return null;
+      if (tag >= 2) return strings.get(tag - 2);
+      int length = readVarint(payload);
+      // readNBytes: read(b, 0, 0) a fine payload dà -1, e la stringa vuota è valida
+      byte[] b = payload.readNBytes(length);
+      if (b.length != length) throw new EOFException();
+      String s = new String(b, StandardCharsets.UTF_8);
+      if (strings.size() < MAX_STRINGS) strings.add(s);
+      return s;
+    }
+
+    private int varint() throws IOException {
+      int v = readVarint(payload);
+      return (v >>> 1) ^ -(v & 1);
+    }
+
+    private int next8() throws IOException {
+      int b = payload.read();
+      if (b < 0) throw new EOFException();
+      return b;
+    }
+  }
+
+  // ================= helpers =================
+
+  private static void writeVarint(OutputStream out, int v) throws IOException {
+    while ((v & ~0x7f) != 0) {
+      out.write((v & 0x7f) | 0x80);
+      v >>>= 7;
+    }
+    out.write(v);
+  }
+
+  private static int readVarint(InputStream in) throws IOException {
+    int v = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = in.read();
+      if (b < 0) throw new EOFException();
+      v |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) return v;
+    }
+    throw new IOException("varint troppo lungo");
+  }
+}
@@ -0,0 +1,33 @@
+package ghs.analyzer.io;
+
+import ghs.analyzer.model.TestRecord;
+
+/**
+ * Sink di un worker remoto: ogni record diventa un frame RECORD verso il coordinatore, ogni
+ * flush un frame FLUSHED, dopo il quale il coordinatore scrive i record e ne registra il
+ * progress.
+ */
+public final class SocketOutputSink implements OutputSink {
+
+  private final RecordFrames.Writer out;
+
+  public SocketOutputSink(RecordFrames.Writer out) {
+    this.out = out;
+  }
+
+  @Override
+  public void write(TestRecord r) throws Exception {
+    out.record(r);
+  }
+
+  @Override
+  public void flush() throws Exception {
+    out.signal(RecordFrames.FLUSHED);
+    out.flush();
+  }
+
+  @Override
+  public void close() throws java.io.IOException {
+    out.flush();
+  }
+}
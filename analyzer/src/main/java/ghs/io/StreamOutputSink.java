@@ -0,0 +1,103 @@
+package ghs.analyzer.io;
+
+import ghs.analyzer.model.*;
+import java.io.PrintStream;
+import java.util.HashSet;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Sink di un worker JVM: ogni record diventa una riga "R &lt;json&gt;" sullo stream del
+ * protocollo verso il supervisore, che la rilegge con decode e la passa al proprio sink.
+ * Un flush diventa una riga "F": il supervisore rende persistenti i record ricevuti e solo
+ * dopo ne registra il progress.
+ */
+public final class StreamOutputSink implements OutputSink {
+
+  public static final String RECORD = "R ";
+  public static final String FLUSH = "F";
+  public static final String DONE = "D";
+  public static final String ERROR = "E ";
+  public static final String OOM = "O";
+
+  private final PrintStream out;
+
+  public StreamOutputSink(PrintStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public synchronized void write(TestRecord r) {
+    out.print(RECORD);
+    out.print(encode(r));
+    out.print('\n');
+  }
+
+  @Override
+  public synchronized void flush() {
+    out.print(FLUSH);
+    out.print('\n');
+    out.flush();
+  }
+
+  @Override
+  public synchronized void close() {
+    out.flush();
+  }
+
+  static String encode(TestRecord r) {
+    CgStats s = r.cgStats();
+    return new JSONObject()
+      .put("repo", r.repo())
+      .put("module", r.module())
+      .put("cfgId", r.cfgId())
+      .put("testClass", r.testClass())
+      .put("testMethod", r.testMethod())
+      .put("focalClass", r.focalClass())
+      .put("focalMethod", r.focalMethod())
+      .put(
+        "cgStats",
+        new JSONArray()
+          .put(s.projectCalls())
+          .put(s.callsToFocalClass())
+          .put(s.callsToOtherProjectClasses())
+          .put(s.callsToLibraries())
+          .put(s.uniqueProjectClasses())
+          .put(s.maxDepthVisited())
+      )
+      .put("usesMocks", r.usesMocks())
+      .put("score", r.unitIntegrationScore())
+      .toString();
+  }
+
+  /** Record da una riga del protocollo (senza il prefisso); reachedClasses resta vuoto. */
+  public static TestRecord decode(String json) {
+    JSONObject o = new JSONObject(json);
+    JSONArray s = o.getJSONArray("cgStats");
+    return new TestRecord(
+      text(o, "repo"),
+      text(o, "module"),
+      text(o, "cfgId"),
+      text(o, "testClass"),
+      text(o, "testMethod"),
+      text(o, "focalClass"),
+      text(o, "focalMethod"),
+      new CgStats(
+        s.getInt(0),
+        s.getInt(1),
+        s.getInt(2),
+        s.getInt(3),
+        s.getInt(4),
+        s.getInt(5)
+      ),
+      o.getBoolean("usesMocks"),
+      o.getDouble("score"),
+      new HashSet<>()
+    );
+  }
+
+  /** I campi null non finiscono nel JSON (es. focalMethod non trovato). */
+  private static String text(JSONObject o, String key) {
+    return o.has(key) ? o.getString(key) : null;
+  }
+}
@@ -2,6 +2,7 @@ package ghs.analyzer.model;
 
 
 import ghs.analyzer.cli.CliOptions;
+import ghs.analyzer.graph.CallGraphAlgorithms;
 
 
 public record AnalysisConfig(
@@ -27,9 +28,37 @@ int autoBatchHuge,
 int autoVisitedBig,
 int autoVisitedHuge,
 boolean autoFastHeuristic,
-String onlyFromFile
+String onlyFromFile,
+int moduleThreads,
+int moduleBaseMb,
+int moduleKbPerClass,
+int testThreads,
+boolean cgPerModule,
+String bfsEngine,
+int summaryMb,
+boolean cgCache,
+boolean incremental,
+boolean cgBounded,
+String cgAlgo,
+int cgThreads,
+int pipelineGraphs,
+int workers,
+String workerHeapsMb,
+String shard,
+String coordinator,
+boolean adaptiveBatch,
+int targetHeapPct,
+boolean bisectOom,
+boolean fixtures,
+boolean transitiveMocks,
+int workerTimeoutS
 ) {
 public static AnalysisConfig from(CliOptions o) {
+// In append (e con splitByRepo, sempre in append) la riga vecchia di un test rianalizzato
+// resterebbe nel file accanto a quella nuova
+if (o.incremental() && (o.append() || o.splitByRepo())) throw new IllegalArgumentException(
+"--incremental non è compatibile con --append e --splitByRepo"
+);
 return new AnalysisConfig(
 o.base().toString(),
 o.out().toString(),
@@ -53,7 +82,111 @@ o.autoBatchHuge(),
 o.autoVisitedBig(),
 o.autoVisitedHuge(),
 o.autoFastHeuristic(),
-o.onlyFrom().map(java.nio.file.Path::toString).orElse("")
+o.onlyFrom().map(java.nio.file.Path::toString).orElse(""),
+o.moduleThreads(),
+o.moduleBaseMb(),
+o.moduleKbPerClass(),
+o.testThreads(),
+o.cgPerModule(),
+o.bfsEngine(),
+o.summaryMb(),
+o.cgCache(),
+o.incremental(),
+o.cgBounded(),
+o.cgAlgo(),
+o.cgThreads(),
+o.pipelineGraphs(),
+o.workers(),
+o.workerHeapsMb(),
+o.shard(),
+o.coordinator(),
+o.adaptiveBatch(),
+o.targetHeapPct(),
+o.bisectOom(),
+o.fixtures(),
+o.transitiveMocks(),
+o.workerTimeoutS()
+);
+}
+
+
+/** Copia della configurazione con i parametri effettivi scelti dall'auto-tuning. */
+public AnalysisConfig withTuning(int maxVisited, int batchSize, boolean useJars, int batchesPerView) {
+return new AnalysisConfig(
+baseDir,
+outPath,
+maxDepth,
+pruneLibs,
+maxVisited,
+batchSize,
+splitByRepo,
+append,
+useJars,
+resume,
+resumeReset,
+maxJars,
+ignoreJarsIfTestsOver,
+batchesPerView,
+autoTune,
+bigThr,
+hugeThr,
+autoBatchBig,
+autoBatchHuge,
+autoVisitedBig,
+autoVisitedHuge,
+autoFastHeuristic,
+onlyFromFile,
+moduleThreads,
+moduleBaseMb,
+moduleKbPerClass,
+testThreads,
+cgPerModule,
+bfsEngine,
+summaryMb,
+cgCache,
+incremental,
+cgBounded,
+cgAlgo,
+cgThreads,
+pipelineGraphs,
+workers,
+workerHeapsMb,
+shard,
+coordinator,
+adaptiveBatch,
+targetHeapPct,
+bisectOom,
+fixtures,
+transitiveMocks,
+workerTimeoutS
 );
 }
-}
\ No newline at end of file
+
+
+/** CG per batch limitato in profondità: solo con CHA e senza CG di modulo e cache, che richiedono tutti gli archi. */
+public boolean boundedCallGraph() {
+return cgBounded && !cgPerModule && !cgCache && CallGraphAlgorithms.isCha(cgAlgo);
+}
+
+/** Batch in pipeline solo senza stato di modulo mutato dai batch (CG di modulo, cache del CG). */
+public boolean pipelinedBatches() {
+return pipelineGraphs > 1 && !cgPerModule && !cgCache;
+}
+
+/**
+ * Un modulo alla volta per JVM: senza scheduler di moduli, oppure con i worker (JVM figlie o
+ * remote), che analizzano comunque un modulo alla volta.
+ */
+public boolean oneModulePerJvm() {
+return moduleThreads <= 1 || workers > 0 || !coordinator.isBlank();
+}
+
+/**
+ * Batch adattivi solo nel ciclo sequenziale (in pipeline i batch si preparano in anticipo) e
+ * con un modulo alla volta per JVM: le notifiche di GC che il controller ascolta sono di tutto
+ * il processo.
+ */
+public boolean adaptiveBatches() {
+return adaptiveBatch && !pipelinedBatches() && oneModulePerJvm();
+}
+}
@@ -0,0 +1,8 @@
+package ghs.analyzer.model;
+
+
+import java.util.List;
+
+
+/** Risultato salvato di un test con l'impronta del bytecode che lo ha prodotto. */
+public record IncrementalEntry(String testKey, String fingerprint, List<String> classes, TestRecord record) {}
@@ -11,5 +11,7 @@ String focalClass,
 String focalMethod,
 CgStats cgStats,
 boolean usesMocks,
-double unitIntegrationScore
+double unitIntegrationScore,
+// Classi di progetto raggiunte dal test (non va in output, serve alla modalità incremental)
+java.util.Set<String> reachedClasses
 ) {}
\ No newline at end of file
@@ -1,50 +1,103 @@
 // file: src/main/java/ghs/analyzer/pipeline/AnalyzerPipeline.java
 package ghs.analyzer.pipeline;
 
+import ghs.analyzer.io.InputResolver;
 import ghs.analyzer.io.ModuleScanner;
 import ghs.analyzer.model.AnalysisConfig;
 import ghs.analyzer.util.PathUtil;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /** Orchestratore di alto livello: scansiona i moduli e delega l'analisi a ModuleAnalyzer. */
 public final class AnalyzerPipeline {
 
   private final ModuleScanner scanner;
+  private final InputResolver inputResolver;
   private final ModuleAnalyzer analyzer;
+  private final WorkerSupervisor workers;
+  private final ModuleCoordinator coordinator;
   private final AnalysisConfig cfg;
 
+  /** workers e coordinator possono essere null: i moduli si analizzano in questo processo. */
   public AnalyzerPipeline(
     ModuleScanner scanner,
+    InputResolver inputResolver,
     ModuleAnalyzer analyzer,
+    WorkerSupervisor workers,
+    ModuleCoordinator coordinator,
     AnalysisConfig cfg
   ) {
     this.scanner = scanner;
+    this.inputResolver = inputResolver;
     this.analyzer = analyzer;
+    this.workers = workers;
+    this.coordinator = coordinator;
     this.cfg = cfg;
   }
 
   public void run(Path baseDir) throws Exception {
+    ModuleSharding.Shard shard = ModuleSharding.Shard.parse(cfg.shard());
     Set<String> allow = loadOnlyFrom(cfg.onlyFromFile());
     if (!allow.isEmpty()) System.out.println(
       "Filtro onlyFrom attivo: " + allow.size() + " repo"
     );
 
+    List<Path> modules = new ArrayList<>();
     for (Path module : scanner.findMavenModules(baseDir)) {
       String repo = PathUtil.repoName(baseDir, module);
       if (!allow.isEmpty() && !allow.contains(repo)) {
         System.out.println("   (skip repo non in onlyFrom): " + repo);
         continue;
       }
-      analyzer.analyzeModule(baseDir, module, cfg);
+      modules.add(module);
     }
+
+    ModuleScheduler scheduler = new ModuleScheduler(
+      cfg.moduleThreads(),
+      cfg.moduleBaseMb(),
+      cfg.moduleKbPerClass(),
+      inputResolver
+    );
+    if (shard != null) modules = ModuleSharding.select(
+      baseDir,
+      modules,
+      shard,
+      scheduler::classCount
+    );
+
+    if (coordinator != null) {
+      coordinator.runAll(baseDir, modules);
+      return;
+    }
+
+    if (workers != null) {
+      workers.runAll(modules, scheduler::estimateMb);
+      return;
+    }
+
+    if (cfg.moduleThreads() <= 1) {
+      for (Path module : modules) analyzer.analyzeModule(baseDir, module, cfg);
+      return;
+    }
+
+    System.out.printf(
+      "Scheduler moduli: %d thread, %d moduli%n",
+      cfg.moduleThreads(),
+      modules.size()
+    );
+    if (cfg.adaptiveBatch()) System.out.println(
+      "   adaptiveBatch ignorato: con più moduli per processo la GC non è di un batch solo"
+    );
+    scheduler.runAll(modules, (module, inventory) ->
+      analyzer.analyzeModule(baseDir, module, cfg, inventory)
+    );
   }
 
   // ================= helpers =================
 
-  private static Set<String> loadOnlyFrom(String path) {
+  static Set<String> loadOnlyFrom(String path) {
     if (path == null || path.isBlank()) return Set.of();
     Path file = Paths.get(path);
     try {
@@ -1,5 +1,8 @@
 package ghs.analyzer.pipeline;
 
+import ghs.analyzer.discovery.TestFixtures;
+import ghs.analyzer.graph.ClassIndex;
+import ghs.analyzer.io.ClassInventory;
 import ghs.analyzer.model.*;
 import java.nio.file.Path;
 import java.util.List;
@@ -12,13 +15,52 @@ public interface AnalyzerStrategy {
     Path module,
     String cfgId,
     List<JavaSootMethod> batch,
-    ProjectIndex idx,
+    ClassIndex idx,
+    ClassInventory inventory,
+    TestFixtures fixtures,
     AnalysisConfig cfg
   ) throws Exception;
 
-  record ProjectIndex(
-    java.util.Set<String> projectProdClasses,
-    java.util.Set<String> projectTestClasses,
-    java.util.Set<String> projectAllClasses
-  ) {}
+  /** Batch pronto per l'analisi (es. con il call graph già costruito). */
+  interface PreparedBatch {
+    List<TestRecord> analyze() throws Exception;
+  }
+
+  /**
+   * Prima fase di analyzeBatch, separata per poterla sovrapporre all'analisi del batch
+   * precedente. Di default non prepara nulla e rimanda tutto ad analyze().
+   */
+  default PreparedBatch prepareBatch(
+    String repoName,
+    Path module,
+    String cfgId,
+    List<JavaSootMethod> batch,
+    ClassIndex idx,
+    ClassInventory inventory,
+    TestFixtures fixtures,
+    AnalysisConfig cfg
+  ) throws Exception {
+    return () ->
+      analyzeBatch(
+        repoName,
+        module,
+        cfgId,
+        batch,
+        idx,
+        inventory,
+        fixtures,
+        cfg
+      );
+  }
+
+  /** Chiamato a fine modulo (anche in caso di errore) per rilasciare eventuale stato per-modulo. */
+  default void endModule(Path module) {}
+
+  /**
+   * Come endModule, ma dopo un OutOfMemoryError: lo stato per-modulo si scarta senza
+   * salvarlo, perché può essere rimasto a metà di un aggiornamento.
+   */
+  default void discardModule(Path module) {
+    endModule(module);
+  }
 }
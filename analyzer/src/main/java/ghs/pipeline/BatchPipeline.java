@@ -0,0 +1,163 @@
+package ghs.analyzer.pipeline;
+
+import ghs.analyzer.model.TestRecord;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Batch di un modulo in tre stadi collegati da code limitate: costruzione del CG (thread
+ * dedicato), analisi dei test (thread chiamante) e scrittura (thread dedicato, in ordine).
+ * Il batch n+1 si costruisce mentre si analizza il batch n e si scrive il batch n-1. Un
+ * semaforo tiene vivi al massimo maxGraphs batch preparati: il permesso si prende prima
+ * di costruire e si rilascia quando l'analisi ha lasciato il CG.
+ */
+final class BatchPipeline {
+
+  interface Builder {
+    AnalyzerStrategy.PreparedBatch build(int batch) throws Exception;
+  }
+
+  interface Sink {
+    void write(int batch, List<TestRecord> results) throws Exception;
+  }
+
+  /** Batch preparato, oppure errore della costruzione. */
+  private record Built(
+    int batch,
+    AnalyzerStrategy.PreparedBatch prepared,
+    Throwable error
+  ) {}
+
+  private final int maxGraphs;
+  private volatile int failedBatch = -1;
+  private volatile int restartFrom = -1;
+
+  BatchPipeline(int maxGraphs) {
+    this.maxGraphs = Math.max(1, maxGraphs);
+  }
+
+  /** Batch in cui si è verificato l'errore rilanciato da run (-1 se nessuno). */
+  int failedBatch() {
+    return failedBatch;
+  }
+
+  /**
+   * Dopo un errore di costruzione o di analisi: il batch fallito, se tutti i precedenti
+   * sono stati scritti per intero e da lì si può ripartire; -1 altrimenti (errore in
+   * scrittura, o scrittura precedente non riuscita).
+   */
+  int restartFrom() {
+    return restartFrom;
+  }
+
+  void run(int totalBatches, Builder builder, Sink sink) throws Exception {
+    Semaphore graphs = new Semaphore(maxGraphs);
+    BlockingQueue<Built> built = new ArrayBlockingQueue<>(maxGraphs);
+    Thread producer = new Thread(
+      () -> {
+        for (int b = 0; b < totalBatches; b++) {
+          try {
+            graphs.acquire();
+          } catch (InterruptedException e) {
+            return;
+          }
+          Built next;
+          try {
+            next = new Built(b, builder.build(b), null);
+          } catch (Throwable t) {
+            next = new Built(b, null, t);
+          }
+          try {
+            built.put(next);
+          } catch (InterruptedException e) {
+            return;
+          }
+          if (next.error() != null) return;
+        }
+      },
+      "cg-build"
+    );
+    producer.setDaemon(true);
+    ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "batch-sink");
+      t.setDaemon(true);
+      return t;
+    });
+
+    producer.start();
+    Future<?> pending = null;
+    int pendingBatch = -1;
+    // Batch a cui attribuire un errore: quello in analisi, o quello in scrittura mentre
+    // se ne attende la fine
+    int current = -1;
+    boolean writing = false;
+    int restart = -1;
+    try {
+      for (int b = 0; b < totalBatches; b++) {
+        current = b;
+        Built next = built.take();
+        if (next.error() != null) rethrow(next.error());
+        List<TestRecord> results = next.prepared().analyze();
+        next = null;
+        graphs.release();
+
+        // Al più una scrittura in corso: i suoi errori emergono qui, al batch successivo
+        if (pending != null) {
+          current = pendingBatch;
+          writing = true;
+          await(pending);
+          writing = false;
+          current = b;
+        }
+        final int batch = b;
+        pending = writer.submit(() -> {
+          sink.write(batch, results);
+          return null;
+        });
+        pendingBatch = b;
+      }
+      current = pendingBatch;
+      writing = true;
+      if (pending != null) await(pending);
+    } catch (Throwable t) {
+      failedBatch = current;
+      if (!writing) restart = current;
+      throw t;
+    } finally {
+      // Si aspetta anche una costruzione in corso: a fine modulo la strategy libera il suo stato
+      producer.interrupt();
+      // La scrittura in corso invece finisce: interrotta chiuderebbe il canale dell'output
+      // condiviso (ClosedByInterruptException) anche per gli altri moduli
+      writer.shutdown();
+      writer.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+      producer.join();
+      if (restart >= 0 && (pending == null || written(pending))) {
+        restartFrom = restart;
+      }
+    }
+  }
+
+  /** true se la scrittura è terminata senza errori. */
+  private static boolean written(Future<?> f) {
+    try {
+      f.get();
+      return true;
+    } catch (ExecutionException | InterruptedException e) {
+      return false;
+    }
+  }
+
+  private static void await(Future<?> f) throws Exception {
+    try {
+      f.get();
+    } catch (ExecutionException e) {
+      rethrow(e.getCause());
+    }
+  }
+
+  private static void rethrow(Throwable t) throws Exception {
+    if (t instanceof Error err) throw err;
+    if (t instanceof Exception ex) throw ex;
+    throw new RuntimeException(t);
+  }
+}
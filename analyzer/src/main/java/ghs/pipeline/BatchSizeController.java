@@ -0,0 +1,166 @@
+package ghs.analyzer.pipeline;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.*;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Dimensione dei batch regolata sull'occupazione dell'heap invece che su soglie fisse. Le
+ * notifiche di GC danno, per ogni raccolta durante il batch, l'heap ancora occupato dopo
+ * la raccolta (solo pool di tipo HEAP) e la durata; il picco dopo GC è l'occupazione del
+ * batch.
+ *
+ * <p>L'occupazione ha una parte fissa (view, gerarchia, resto del processo) e una che cresce
+ * con i test del batch (CG, BFS): sugli ultimi batch si stima occupazione = fisso +
+ * perTest × dimensione e si sceglie la dimensione che porta l'occupazione all'obiettivo.
+ * Con un solo punto si assume tutto proporzionale; se la stima non mostra crescita con la
+ * dimensione, ridurre il batch non libera memoria e si cresce solo sotto l'obiettivo. Il
+ * passo sta tra ×0.5 e ×1.5 (nessun cambio sotto il 10%); un batch senza GC cresce, e non
+ * si cresce se il batch, già vicino all'obiettivo, ha passato più di un terzo del tempo in GC.
+ *
+ * <p>Le notifiche di GC sono di tutto il processo: il controller ha senso solo con un modulo
+ * alla volta per JVM (vedi AnalysisConfig.adaptiveBatches).
+ */
+final class BatchSizeController implements AutoCloseable {
+
+  private static final double GROW = 1.5;
+  private static final double SHRINK = 0.5;
+  private static final double DEADBAND = 0.1;
+  private static final double MAX_GC_SHARE = 1.0 / 3;
+  private static final double NEAR = 0.8;
+  private static final int WINDOW = 8;
+
+  private final double target;
+  private final int min;
+  private final int max;
+  private final long maxHeap = Runtime.getRuntime().maxMemory();
+  private final Set<String> heapPools = new HashSet<>();
+  private final List<NotificationEmitter> emitters = new ArrayList<>();
+  private final NotificationListener listener = this::onGc;
+  /** Ultimi batch con almeno una GC: {dimensione, picco dopo GC in byte}. */
+  private final Deque<double[]> history = new ArrayDeque<>();
+
+  private final AtomicLong gcs = new AtomicLong();
+  private final AtomicLong gcMillis = new AtomicLong();
+  private final AtomicLong peakAfterGc = new AtomicLong();
+  private long batchStart;
+  private int size;
+
+  BatchSizeController(int initial, int targetPct, int min, int max) {
+    this.target = Math.max(10, Math.min(95, targetPct)) / 100.0;
+    this.min = Math.max(1, min);
+    this.max = Math.max(this.min, max);
+    this.size = Math.max(this.min, Math.min(this.max, initial));
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) heapPools.add(pool.getName());
+    }
+    NotificationFilter onlyGc = n ->
+      GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(
+        n.getType()
+      );
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (gc instanceof NotificationEmitter e) {
+        e.addNotificationListener(listener, onlyGc, null);
+        emitters.add(e);
+      }
+    }
+  }
+
+  /** Dimensione del prossimo batch. */
+  int size() {
+    return size;
+  }
+
+  void beforeBatch() {
+    gcs.set(0);
+    gcMillis.set(0);
+    peakAfterGc.set(0);
+    batchStart = System.nanoTime();
+  }
+
+  /** Aggiorna la dimensione in base a quanto osservato durante il batch appena finito. */
+  void afterBatch() {
+    long elapsedMs = Math.max(1, (System.nanoTime() - batchStart) / 1_000_000);
+    long n = gcs.get();
+    double occupancy = peakAfterGc.get() / (double) maxHeap;
+    double gcShare = gcMillis.get() / (double) elapsedMs;
+
+    double factor;
+    if (n == 0) factor = GROW;
+    else {
+      if (history.size() == WINDOW) history.removeFirst();
+      history.addLast(new double[] { size, peakAfterGc.get() });
+      factor = fit(target * maxHeap) / size;
+    }
+    factor = Math.max(SHRINK, Math.min(GROW, factor));
+    // GC pesante lontano dall'obiettivo è solo allocazione (view, BFS): crescere la ammortizza
+    if (factor > 1 && gcShare > MAX_GC_SHARE && occupancy > target * NEAR) factor = 1;
+    if (Math.abs(factor - 1) < DEADBAND) factor = 1;
+
+    int next = (int) Math.max(min, Math.min(max, Math.round(size * factor)));
+    System.out.printf(
+      Locale.ROOT,
+      "   batch adattivo: heap dopo GC %d%% (obiettivo %d%%), %d GC in %d ms su %d ms → prossimo batch %d%n",
+      Math.round(occupancy * 100),
+      Math.round(target * 100),
+      n,
+      gcMillis.get(),
+      elapsedMs,
+      next
+    );
+    size = next;
+  }
+
+  /** Il batch è stato diviso per OutOfMemoryError: il prossimo parte da metà. */
+  void afterOom() {
+    size = Math.max(min, size / 2);
+    System.out.printf("   batch adattivo: OOM → prossimo batch %d%n", size);
+  }
+
+  @Override
+  public void close() {
+    for (NotificationEmitter e : emitters) {
+      try {
+        e.removeNotificationListener(listener);
+      } catch (ListenerNotFoundException ignored) {}
+    }
+  }
+
+  // ================= helpers =================
+
+  /** Dimensione che porta il picco a budget byte secondo la stima fisso + perTest × dimensione. */
+  private double fit(double budget) {
+    double n = history.size(), sx = 0, sy = 0, sxx = 0, sxy = 0;
+    for (double[] p : history) {
+      sx += p[0];
+      sy += p[1];
+      sxx += p[0] * p[0];
+      sxy += p[0] * p[1];
+    }
+    double var = n * sxx - sx * sx;
+    double[] last = history.getLast();
+    // Una sola dimensione osservata: occupazione proporzionale alla dimensione
+    if (var == 0) return last[0] * budget / Math.max(last[1], 1);
+    double perTest = (n * sxy - sx * sy) / var;
+    double fixed = (sy - perTest * sx) / n;
+    if (perTest <= 0) return last[1] < budget ? last[0] * GROW : last[0];
+    return (budget - fixed) / perTest;
+  }
+
+  private void onGc(Notification n, Object handback) {
+    GcInfo info = GarbageCollectionNotificationInfo.from(
+      (CompositeData) n.getUserData()
+    ).getGcInfo();
+    long used = 0;
+    for (Map.Entry<String, MemoryUsage> e : info.getMemoryUsageAfterGc().entrySet()) {
+      if (heapPools.contains(e.getKey())) used += e.getValue().getUsed();
+    }
+    gcs.incrementAndGet();
+    gcMillis.addAndGet(info.getDuration());
+    peakAfterGc.accumulateAndGet(used, Math::max);
+  }
+}
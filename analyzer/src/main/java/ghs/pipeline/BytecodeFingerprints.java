@@ -0,0 +1,329 @@
+package ghs.analyzer.pipeline;
+
+import ghs.analyzer.io.ClassInventory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Impronte del bytecode di un modulo per la modalità incremental. L'impronta di un test
+ * combina, per ogni classe di progetto che ha raggiunto, l'hash della class file (corpi dei
+ * metodi, quindi archi uscenti) e la "forma" della sua gerarchia: supertipi e metodi
+ * dichiarati, con i flag di accesso, delle classi di progetto sopra di essa e di tutte
+ * quelle sotto i suoi supertipi. CHA risolve una chiamata virtuale su tutti i sottotipi del
+ * tipo dichiarato, quindi un override aggiunto in una classe mai raggiunta ma in quella
+ * gerarchia può cambiare gli archi del test. Entrano nell'impronta anche cfgId, versione
+ * della JVM (classi JRT), gli override dei metodi di Object in tutto il modulo, che CHA
+ * collega a ogni chiamata di toString/equals/hashCode, e la forma di tutte le classi di
+ * progetto sotto un tipo di libreria (Supplier, Runnable, Iterator...): un test che chiama
+ * attraverso quel tipo ottiene da CHA archi verso ogni nuova implementazione, anche se non
+ * ha mai raggiunto una classe di progetto della sua gerarchia.
+ *
+ * <p>Supertipi e metodi si leggono dall'intestazione delle class file, senza risolvere
+ * nulla in SootUp; la forma della gerarchia si calcola alla prima richiesta per classe.
+ *
+ * <p>Una voce simpleName(n) al posto di un FQN sta per l'elenco delle classi prod con nome
+ * semplice n: la modalità FAST sceglie la focal class tra quelle, quindi aggiungerne una
+ * cambia l'impronta anche se nessun test l'ha mai raggiunta.
+ */
+final class BytecodeFingerprints {
+
+  /** Supertipi che non dichiarano metodi propri da sovrascrivere: non legano la gerarchia. */
+  private static final Set<String> ROOTS = Set.of(
+    "java.lang.Object",
+    "java.io.Serializable",
+    "java.lang.Cloneable"
+  );
+  private static final String SIMPLE_NAME = "?";
+  private static final Set<String> OBJECT_METHODS = Set.of(
+    "toString()Ljava/lang/String;",
+    "equals(Ljava/lang/Object;)Z",
+    "hashCode()I",
+    "clone()Ljava/lang/Object;",
+    "finalize()V"
+  );
+
+  /**
+   * Intestazione di una class file: supertipi diretti, hash di supertipi e metodi con i flag
+   * e metodi di Object che dichiara (vuoto se nessuno).
+   */
+  private record Header(
+    List<String> supers,
+    String shape,
+    String objectMethods
+  ) {}
+
+  private final Map<String, String> classHashes;
+  private final Map<String, Header> headers;
+  /** Sottotipi diretti di progetto di ogni tipo (di progetto o di libreria). */
+  private final Map<String, List<String>> subtypes;
+  /** Nome semplice → FQN delle classi prod con quel nome, in ordine alfabetico. */
+  private final Map<String, String> prodBySimpleName;
+  private final String prefix;
+  private final Map<String, String> hierarchies = new ConcurrentHashMap<>();
+
+  private BytecodeFingerprints(
+    Map<String, String> classHashes,
+    Map<String, Header> headers,
+    Map<String, List<String>> subtypes,
+    Map<String, String> prodBySimpleName,
+    String prefix
+  ) {
+    this.classHashes = classHashes;
+    this.headers = headers;
+    this.subtypes = subtypes;
+    this.prodBySimpleName = prodBySimpleName;
+    this.prefix = prefix;
+  }
+
+  /** Voce che sta per tutte le classi prod con questo nome semplice. */
+  static String simpleName(String name) {
+    // '?' non compare negli FQN Java
+    return SIMPLE_NAME + name;
+  }
+
+  static BytecodeFingerprints of(ClassInventory inventory, String cfgId) {
+    Map<String, String> hashes = inventory.classHashes();
+
+    // Come per gli hash, se la stessa FQN è in prod e in test vale prima prod
+    List<ClassInventory.Entry> all = new ArrayList<>(inventory.prodEntries());
+    all.addAll(inventory.testEntries());
+    List<Header> read = all
+      .parallelStream()
+      .map(e -> {
+        try {
+          return header(Files.readAllBytes(e.file()));
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+      })
+      .collect(Collectors.toList());
+    Map<String, Header> headers = new HashMap<>(all.size() * 2);
+    for (int i = 0; i < all.size(); i++) {
+      Header h = read.get(i);
+      // File anomalo: la forma è il suo contenuto
+      String fqn = all.get(i).fqn();
+      if (h == null) h = new Header(List.of(), hashes.get(fqn), "");
+      headers.putIfAbsent(fqn, h);
+    }
+    Map<String, List<String>> subtypes = new HashMap<>();
+    for (Map.Entry<String, Header> e : headers.entrySet()) {
+      for (String s : e.getValue().supers()) {
+        subtypes.computeIfAbsent(s, k -> new ArrayList<>()).add(e.getKey());
+      }
+    }
+
+    Map<String, SortedSet<String>> bySimple = new HashMap<>();
+    for (ClassInventory.Entry e : inventory.prodEntries()) {
+      String fqn = e.fqn();
+      String simple = fqn.substring(fqn.lastIndexOf('.') + 1);
+      bySimple.computeIfAbsent(simple, k -> new TreeSet<>()).add(fqn);
+    }
+    Map<String, String> prodBySimpleName = new HashMap<>(bySimple.size() * 2);
+    bySimple.forEach((k, v) -> prodBySimpleName.put(k, String.join(",", v)));
+
+    StringBuilder sb = new StringBuilder();
+    sb
+      .append(cfgId)
+      .append('|')
+      .append(System.getProperty("java.runtime.version"))
+      .append('|');
+    StringBuilder overrides = new StringBuilder();
+    for (String fqn : new TreeSet<>(headers.keySet())) {
+      String m = headers.get(fqn).objectMethods();
+      if (m.isEmpty()) continue;
+      overrides.append(fqn).append(':').append(m).append('\n');
+    }
+    sb.append(
+      ClassInventory.sha256(
+        overrides.toString().getBytes(StandardCharsets.UTF_8)
+      )
+    );
+    // Sottotipi di progetto (anche indiretti) dei tipi di libreria che legano la gerarchia
+    Deque<String> work = new ArrayDeque<>();
+    for (String t : subtypes.keySet()) {
+      if (!headers.containsKey(t) && !ROOTS.contains(t)) work.add(t);
+    }
+    Set<String> seen = new HashSet<>();
+    Set<String> libSubtypes = new TreeSet<>();
+    while (!work.isEmpty()) {
+      String t = work.poll();
+      if (!seen.add(t)) continue;
+      for (String sub : subtypes.getOrDefault(t, List.of())) {
+        libSubtypes.add(sub);
+        work.add(sub);
+      }
+    }
+    StringBuilder shapes = new StringBuilder();
+    for (String fqn : libSubtypes) {
+      shapes.append(fqn).append('=').append(headers.get(fqn).shape()).append('\n');
+    }
+    sb
+      .append('|')
+      .append(
+        ClassInventory.sha256(shapes.toString().getBytes(StandardCharsets.UTF_8))
+      );
+    return new BytecodeFingerprints(
+      hashes,
+      headers,
+      subtypes,
+      prodBySimpleName,
+      sb.toString()
+    );
+  }
+
+  /** Impronta di un test che ha raggiunto le classi date (ordine irrilevante). */
+  String fingerprint(Collection<String> classes) {
+    StringBuilder sb = new StringBuilder(prefix);
+    for (String fqn : new TreeSet<>(classes)) {
+      sb.append('\n').append(fqn).append('=');
+      if (fqn.startsWith(SIMPLE_NAME)) {
+        sb.append(prodBySimpleName.getOrDefault(fqn.substring(1), ""));
+        continue;
+      }
+      sb
+        .append(classHashes.getOrDefault(fqn, "-"))
+        .append('/')
+        .append(hierarchies.computeIfAbsent(fqn, this::hierarchy));
+    }
+    return ClassInventory.sha256(sb.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Forma della gerarchia di una classe: le classi di progetto tra i suoi supertipi e tutti
+   * i sottotipi di progetto di questi (lei compresa), ciascuna con la propria forma.
+   */
+  private String hierarchy(String fqn) {
+    Set<String> up = new HashSet<>();
+    Deque<String> work = new ArrayDeque<>();
+    work.add(fqn);
+    while (!work.isEmpty()) {
+      String t = work.poll();
+      if (!up.add(t)) continue;
+      Header h = headers.get(t);
+      if (h != null) work.addAll(h.supers());
+    }
+    Set<String> members = new TreeSet<>();
+    for (String t : up) {
+      if (headers.containsKey(t)) members.add(t);
+      if (ROOTS.contains(t)) continue;
+      work.add(t);
+    }
+    Set<String> seen = new HashSet<>();
+    while (!work.isEmpty()) {
+      String t = work.poll();
+      if (!seen.add(t)) continue;
+      for (String s : subtypes.getOrDefault(t, List.of())) {
+        members.add(s);
+        work.add(s);
+      }
+    }
+    StringBuilder sb = new StringBuilder();
+    for (String m : members) {
+      sb.append(m).append('=').append(headers.get(m).shape()).append('\n');
+    }
+    return ClassInventory.sha256(sb.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Supertipi diretti e forma (supertipi e metodi con i flag); null se il file è anomalo. */
+  private static Header header(byte[] classFile) {
+    try {
+      return parse(ByteBuffer.wrap(classFile));
+    } catch (RuntimeException e) {
+      // Constant pool o indici fuori posto
+      return null;
+    }
+  }
+
+  private static Header parse(ByteBuffer in) {
+    if (in.getInt() != 0xCAFEBABE) return null;
+    in.getShort(); // minor
+    in.getShort(); // major
+    int count = in.getShort() & 0xFFFF;
+    String[] utf8 = new String[count];
+    int[] classNames = new int[count];
+    for (int i = 1; i < count; i++) {
+      int tag = in.get();
+      switch (tag) {
+        case 1 -> {
+          int len = in.getShort() & 0xFFFF;
+          // Modified UTF-8: per nomi e descrittori coincide con UTF-8 salvo casi rari,
+          // che cambiano comunque in modo stabile la forma
+          utf8[i] = new String(
+            in.array(),
+            in.position(),
+            len,
+            StandardCharsets.UTF_8
+          );
+          in.position(in.position() + len);
+        }
+        case 7 -> classNames[i] = in.getShort() & 0xFFFF;
+        case 8, 16, 19, 20 -> in.position(in.position() + 2);
+        case 15 -> in.position(in.position() + 3);
+        case 3, 4, 9, 10, 11, 12, 17, 18 -> in.position(in.position() + 4);
+        case 5, 6 -> {
+          in.position(in.position() + 8);
+          i++;
+        }
+        default -> {
+          return null;
+        }
+      }
+    }
+
+    in.position(in.position() + 4); // access, this
+    List<String> supers = new ArrayList<>();
+    int superIndex = in.getShort() & 0xFFFF;
+    String superName = superIndex != 0
+      ? utf8[classNames[superIndex]].replace('/', '.')
+      : "";
+    if (superIndex != 0) supers.add(superName);
+    int interfaces = in.getShort() & 0xFFFF;
+    List<String> ifaces = new ArrayList<>(interfaces);
+    for (int k = 0; k < interfaces; k++) {
+      ifaces.add(utf8[classNames[in.getShort() & 0xFFFF]].replace('/', '.'));
+    }
+    supers.addAll(ifaces);
+    int fields = in.getShort() & 0xFFFF;
+    for (int f = 0; f < fields; f++) {
+      in.position(in.position() + 6);
+      skipAttributes(in);
+    }
+    int methods = in.getShort() & 0xFFFF;
+    List<String> sigs = new ArrayList<>(methods);
+    List<String> objectMethods = new ArrayList<>();
+    for (int m = 0; m < methods; m++) {
+      int access = in.getShort() & 0xFFFF;
+      String sig = utf8[in.getShort() & 0xFFFF] + utf8[in.getShort() & 0xFFFF];
+      sigs.add(Integer.toHexString(access) + ' ' + sig);
+      if (OBJECT_METHODS.contains(sig)) objectMethods.add(sig);
+      skipAttributes(in);
+    }
+
+    Collections.sort(ifaces);
+    Collections.sort(sigs);
+    StringBuilder sb = new StringBuilder(superName);
+    for (String i : ifaces) sb.append(',').append(i);
+    for (String s : sigs) sb.append(';').append(s);
+    Collections.sort(objectMethods);
+    return new Header(
+      supers,
+      ClassInventory.sha256(sb.toString().getBytes(StandardCharsets.UTF_8)),
+      String.join(";", objectMethods)
+    );
+  }
+
+  private static void skipAttributes(ByteBuffer in) {
+    int attrs = in.getShort() & 0xFFFF;
+    for (int a = 0; a < attrs; a++) {
+      in.position(in.position() + 2);
+      int len = in.getInt();
+      in.position(in.position() + len);
+    }
+  }
+}
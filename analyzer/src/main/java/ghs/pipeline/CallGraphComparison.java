@@ -0,0 +1,213 @@
+package ghs.analyzer.pipeline;
+
+import ghs.analyzer.discovery.TestDiscovery;
+import ghs.analyzer.graph.*;
+import ghs.analyzer.heuristics.*;
+import ghs.analyzer.io.ClassInventory;
+import ghs.analyzer.io.InputResolver;
+import ghs.analyzer.io.ModuleScanner;
+import ghs.analyzer.model.*;
+import ghs.analyzer.sootupview.InventoryInputLocation;
+import ghs.analyzer.sootupview.ViewFactory;
+import ghs.analyzer.util.PathUtil;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.json.JSONObject;
+import sootup.callgraph.CallGraph;
+import sootup.core.inputlocation.AnalysisInputLocation;
+import sootup.core.signatures.MethodSignature;
+import sootup.java.bytecode.frontend.inputlocation.JrtFileSystemAnalysisInputLocation;
+import sootup.java.core.JavaSootMethod;
+import sootup.java.core.views.JavaView;
+
+/**
+ * Confronto degli algoritmi di call graph (CallGraphAlgorithms.ALL) sugli stessi moduli e
+ * sugli stessi batch: archi e nodi dei CG, tempo di costruzione, nodi visitati dalle BFS e
+ * accordo sulla focal class rispetto a CHA. Una riga JSON per modulo e algoritmo.
+ */
+public final class CallGraphComparison {
+
+  /** Totali di un algoritmo su un modulo (nodi e archi sommati sui batch). */
+  public record AlgoStats(
+    String algo,
+    int tests,
+    long nodes,
+    long edges,
+    long buildMs,
+    long visited,
+    int focalAgreement
+  ) {}
+
+  private final ModuleScanner scanner;
+  private final InputResolver inputResolver;
+  private final ViewFactory viewFactory;
+  private final TestDiscovery discovery;
+  private final FocalClassHeuristic classHeu;
+  private final FocalMethodHeuristic methodHeu;
+  private final BfsTraverser bfs;
+  private final ChaCallGraphAnalyzer analyzer;
+
+  public CallGraphComparison(
+    ModuleScanner scanner,
+    InputResolver inputResolver,
+    ViewFactory viewFactory,
+    TestDiscovery discovery,
+    FocalClassHeuristic classHeu,
+    FocalMethodHeuristic methodHeu,
+    BfsTraverser bfs,
+    MockUsageDetector mocks,
+    UnitIntegrationScorer scorer
+  ) {
+    this.scanner = scanner;
+    this.inputResolver = inputResolver;
+    this.viewFactory = viewFactory;
+    this.discovery = discovery;
+    this.classHeu = classHeu;
+    this.methodHeu = methodHeu;
+    this.bfs = bfs;
+    this.analyzer = new ChaCallGraphAnalyzer(bfs, mocks, scorer);
+  }
+
+  public void run(Path baseDir, AnalysisConfig cfg) throws Exception {
+    Set<String> allow = AnalyzerPipeline.loadOnlyFrom(cfg.onlyFromFile());
+    Path outPath = Paths.get(cfg.outPath());
+    Path dir = outPath.toAbsolutePath().getParent();
+    if (dir != null) Files.createDirectories(dir);
+    try (
+      BufferedWriter w = Files.newBufferedWriter(outPath, StandardCharsets.UTF_8)
+    ) {
+      for (Path module : scanner.findMavenModules(baseDir)) {
+        String repo = PathUtil.repoName(baseDir, module);
+        if (!allow.isEmpty() && !allow.contains(repo)) continue;
+        System.out.println("Modulo: " + baseDir.relativize(module));
+        for (AlgoStats s : compare(module, cfg)) {
+          System.out.printf(
+            "   %-4s test=%d nodi=%d archi=%d cg=%d ms visitati=%d focal=%d/%d%n",
+            s.algo(),
+            s.tests(),
+            s.nodes(),
+            s.edges(),
+            s.buildMs(),
+            s.visited(),
+            s.focalAgreement(),
+            s.tests()
+          );
+          w.write(
+            new JSONObject()
+              .put("repo", repo)
+              .put("module", module.toString())
+              .put("algo", s.algo())
+              .put("tests", s.tests())
+              .put("nodes", s.nodes())
+              .put("edges", s.edges())
+              .put("buildMs", s.buildMs())
+              .put("visited", s.visited())
+              .put("focalAgreement", s.focalAgreement())
+              .toString()
+          );
+          w.write("\n");
+        }
+        w.flush();
+      }
+    }
+  }
+
+  /** Stessi test e stessi batch per ogni algoritmo; la prima voce è CHA (riferimento). */
+  public List<AlgoStats> compare(Path module, AnalysisConfig cfg)
+    throws Exception {
+    ModuleInputs inputs = inputResolver.resolveInputsForModule(module);
+    if (
+      !Files.isDirectory(inputs.prodClasses()) ||
+      !Files.isDirectory(inputs.testClasses())
+    ) return List.of();
+    ClassInventory inventory = ClassInventory.scan(
+      inputs.prodClasses(),
+      inputs.testClasses()
+    );
+    ClassIndex index = ClassIndex.of(
+      inventory.prodClasses(),
+      inventory.testClasses()
+    );
+    List<JavaSootMethod> tests = discovery.discover(
+      createView(inventory),
+      inventory
+    );
+
+    Function<String, String> simpleName = fqn -> {
+      int i = fqn.lastIndexOf('.');
+      return i >= 0 ? fqn.substring(i + 1) : fqn;
+    };
+    int batchSize = Math.max(1, cfg.batchSize());
+    Map<MethodSignature, String> reference = null;
+    List<AlgoStats> out = new ArrayList<>();
+    for (String algo : CallGraphAlgorithms.ALL) {
+      long nodes = 0, edges = 0, buildMs = 0, visited = 0;
+      Map<MethodSignature, String> focal = new HashMap<>();
+      for (int from = 0; from < tests.size(); from += batchSize) {
+        List<JavaSootMethod> batch = tests.subList(
+          from,
+          Math.min(tests.size(), from + batchSize)
+        );
+        List<MethodSignature> entries = batch
+          .stream()
+          .map(JavaSootMethod::getSignature)
+          .collect(Collectors.toList());
+        JavaView view = createView(inventory);
+        long t0 = System.nanoTime();
+        CallGraph cg = CallGraphAlgorithms.create(algo, view).initialize(entries);
+        buildMs += (System.nanoTime() - t0) / 1_000_000;
+        nodes += cg.getMethodSignatures().size();
+        edges += cg.callCount();
+        for (JavaSootMethod tm : batch) {
+          visited +=
+            bfs
+              .bfs(
+                cg,
+                tm.getSignature(),
+                cfg.maxDepth(),
+                index,
+                cfg.pruneLibs(),
+                cfg.maxVisited()
+              )
+              .size();
+          TestRecord r = analyzer.analyzeOne(
+            "",
+            module,
+            algo,
+            cg,
+            tm,
+            index,
+            cfg.maxDepth(),
+            cfg.pruneLibs(),
+            cfg.maxVisited(),
+            simpleName,
+            classHeu,
+            methodHeu
+          );
+          focal.put(tm.getSignature(), r.focalClass());
+        }
+      }
+      if (reference == null) reference = focal;
+      int agree = 0;
+      for (Map.Entry<MethodSignature, String> e : focal.entrySet()) {
+        if (Objects.equals(reference.get(e.getKey()), e.getValue())) agree++;
+      }
+      out.add(
+        new AlgoStats(algo, tests.size(), nodes, edges, buildMs, visited, agree)
+      );
+    }
+    return out;
+  }
+
+  private JavaView createView(ClassInventory inventory) {
+    List<AnalysisInputLocation> locs = new ArrayList<>(
+      InventoryInputLocation.of(inventory)
+    );
+    locs.add(new JrtFileSystemAnalysisInputLocation());
+    return viewFactory.create(locs);
+  }
+}
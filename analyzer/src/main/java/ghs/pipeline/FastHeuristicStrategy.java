@@ -1,6 +1,9 @@
 package ghs.analyzer.pipeline;
 
+import ghs.analyzer.discovery.TestFixtures;
+import ghs.analyzer.graph.ClassIndex;
 import ghs.analyzer.heuristics.FocalClassHeuristic;
+import ghs.analyzer.io.ClassInventory;
 import ghs.analyzer.model.*;
 import java.nio.file.Path;
 import java.util.*;
@@ -21,7 +24,9 @@ public final class FastHeuristicStrategy implements AnalyzerStrategy {
     Path module,
     String cfgId,
     List<JavaSootMethod> batch,
-    ProjectIndex idx,
+    ClassIndex idx,
+    ClassInventory inventory,
+    TestFixtures fixtures,
     AnalysisConfig cfg
   ) {
     return batch
@@ -30,7 +35,17 @@ public final class FastHeuristicStrategy implements AnalyzerStrategy {
         var s = tm.getSignature();
         String testClass = s.getDeclClassType().getFullyQualifiedName();
         String testMethod = s.getSubSignature().toString();
-        String focalClass = classHeu.guessFocalClassFromTestName(testClass);
+        // Solo classi prod esistenti: il nome indovinato o l'omonima più vicina
+        String guess = classHeu.guessFocalClassFromTestName(testClass);
+        String focalClass = Objects.requireNonNullElse(idx.nearestProd(guess), "");
+        // Solo per l'impronta incremental: la scelta cambia se cambiano le classi con quel nome
+        Set<String> reached = new HashSet<>();
+        if (cfg.incremental()) {
+          String simple = guess.substring(guess.lastIndexOf('.') + 1);
+          reached.add(guess);
+          reached.add(BytecodeFingerprints.simpleName(simple));
+          for (int id : idx.prodBySimpleName(simple)) reached.add(idx.name(id));
+        }
         return new TestRecord(
           repo,
           module.toString(),
@@ -41,7 +56,8 @@ public final class FastHeuristicStrategy implements AnalyzerStrategy {
           "",
           new CgStats(0, 0, 0, 0, 0, 0),
           false,
-          0.0
+          0.0,
+          reached
         );
       })
       .collect(Collectors.toList());
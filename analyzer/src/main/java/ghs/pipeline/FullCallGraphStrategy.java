@@ -1,18 +1,23 @@
 package ghs.analyzer.pipeline;
 
 import ghs.analyzer.discovery.TestDiscovery;
+import ghs.analyzer.discovery.TestFixtures;
 import ghs.analyzer.graph.*;
 import ghs.analyzer.heuristics.*;
+import ghs.analyzer.io.CallGraphStore;
+import ghs.analyzer.io.ClassInventory;
 import ghs.analyzer.model.*;
+import ghs.analyzer.sootupview.InventoryInputLocation;
 import ghs.analyzer.sootupview.ViewFactory;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 import sootup.callgraph.CallGraph;
-import sootup.callgraph.ClassHierarchyAnalysisAlgorithm;
+import sootup.callgraph.GraphBasedCallGraph;
+import sootup.callgraph.MutableCallGraph;
 import sootup.core.inputlocation.AnalysisInputLocation;
 import sootup.core.signatures.MethodSignature;
-import sootup.java.bytecode.frontend.inputlocation.JavaClassPathAnalysisInputLocation;
 import sootup.java.bytecode.frontend.inputlocation.JrtFileSystemAnalysisInputLocation;
 import sootup.java.core.JavaSootMethod;
 import sootup.java.core.views.JavaView;
@@ -26,7 +31,22 @@ public final class FullCallGraphStrategy implements AnalyzerStrategy {
   private final BfsTraverser bfs;
   private final MockUsageDetector mocks;
   private final UnitIntegrationScorer scorer;
-  private final CallGraphAnalyzer analyzer;
+  private final ChaCallGraphAnalyzer analyzer;
+  private final CompactCallGraphAnalyzer compact;
+  private final CallGraphStore cgStore;
+  private ForkJoinPool pool;
+  /** Pool separato per la costruzione parallela del CG (cgThreads). */
+  private ForkJoinPool cgPool;
+  /** Stato per-modulo in modalità cgPerModule: view, gerarchia e CG condivisi tra i batch. */
+  private final Map<Path, IncrementalChaAlgorithm> moduleGraphs =
+    new ConcurrentHashMap<>();
+  /** Ultimo snapshot CSR e riassunti di raggiungibilità per modulo (bfsEngine summary). */
+  private final Map<Path, CompactCallGraph> moduleSnapshots =
+    new ConcurrentHashMap<>();
+  private final Map<Path, ReachSummaries> moduleSummaries =
+    new ConcurrentHashMap<>();
+  /** Archi del modulo letti dalla cache su disco e/o accumulati dai batch (cgCache). */
+  private final Map<Path, ModuleCache> moduleCaches = new ConcurrentHashMap<>();
 
   public FullCallGraphStrategy(
     ViewFactory viewFactory,
@@ -35,8 +55,10 @@ public final class FullCallGraphStrategy implements AnalyzerStrategy {
     FocalMethodHeuristic methodHeu,
     BfsTraverser bfs,
     MockUsageDetector mocks,
-    UnitIntegrationScorer scorer
+    UnitIntegrationScorer scorer,
+    CallGraphStore cgStore
   ) {
+    this.cgStore = cgStore;
     this.viewFactory = viewFactory;
     this.discovery = discovery;
     this.classHeu = classHeu;
@@ -45,6 +67,7 @@ public final class FullCallGraphStrategy implements AnalyzerStrategy {
     this.mocks = mocks;
     this.scorer = scorer;
     this.analyzer = new ChaCallGraphAnalyzer(bfs, mocks, scorer);
+    this.compact = new CompactCallGraphAnalyzer(scorer);
   }
 
   @Override
@@ -53,65 +76,433 @@ public final class FullCallGraphStrategy implements AnalyzerStrategy {
     Path module,
     String cfgId,
     List<JavaSootMethod> batch,
-    ProjectIndex idx,
+    ClassIndex idx,
+    ClassInventory inventory,
+    TestFixtures fixtures,
     AnalysisConfig cfg
   ) throws Exception {
-    // Crea view con prod/test + eventuali JAR
-    List<AnalysisInputLocation> locs = new ArrayList<>();
-    locs.add(
-      new JavaClassPathAnalysisInputLocation(
-        module.resolve("target/classes").toString()
-      )
-    );
-    locs.add(
-      new JavaClassPathAnalysisInputLocation(
-        module.resolve("target/test-classes").toString()
-      )
-    );
-    if (cfg.useJars()) {
-      // NB: la selezione dei JAR viene fatta a monte nel ModuleAnalyzer, qui potresti ricevere un elenco già filtrato se necessario
-      // In questa versione minimale lasciamo alla View l'aggiunta eventuale (estendibile)
-    }
-    locs.add(new JrtFileSystemAnalysisInputLocation());
-    JavaView view = viewFactory.create(locs);
+    return prepareBatch(repo, module, cfgId, batch, idx, inventory, fixtures, cfg)
+      .analyze();
+  }
 
-    // Build CG per il batch
-    ClassHierarchyAnalysisAlgorithm cha = new ClassHierarchyAnalysisAlgorithm(
-      view
-    );
+  /** Costruisce (o recupera) il CG del batch; l'analisi dei test è la fase successiva. */
+  @Override
+  public PreparedBatch prepareBatch(
+    String repo,
+    Path module,
+    String cfgId,
+    List<JavaSootMethod> batch,
+    ClassIndex idx,
+    ClassInventory inventory,
+    TestFixtures fixtures,
+    AnalysisConfig cfg
+  ) throws Exception {
     List<MethodSignature> entries = batch
       .stream()
       .map(JavaSootMethod::getSignature)
       .collect(Collectors.toList());
-    CallGraph cg = cha.initialize(entries);
+    // Le fixture delle classi del batch sono radici come i test, dopo di essi
+    Set<MethodSignature> setups = new LinkedHashSet<>();
+    for (JavaSootMethod tm : batch) setups.addAll(fixtures.of(testClass(tm)));
+    setups.removeAll(entries);
+    entries.addAll(setups);
+
+    // Cache e CG di modulo presuppongono archi che dipendono solo dalla view (CHA)
+    boolean viewOnlyEdges = CallGraphAlgorithms.isCha(cfg.cgAlgo());
+    ModuleCache cache = cfg.cgCache() && viewOnlyEdges
+      ? moduleCaches.computeIfAbsent(module, m ->
+        loadCache(m, inventory, cfg)
+      )
+      : null;
 
+    CallGraph cg;
+    if (cache != null && cache.covers(entries)) {
+      // Classi invariate dall'ultima esecuzione: archi già risolti, niente view né CHA
+      cg = cache.graph;
+      System.out.printf(
+        "   cg da cache: %d metodi%n",
+        cache.graph.getMethodSignatures().size()
+      );
+    } else if (cfg.cgPerModule() && viewOnlyEdges) {
+      // Stessa view e stessa gerarchia per tutto il modulo: si risolvono solo i metodi nuovi
+      IncrementalChaAlgorithm cha = moduleGraphs.computeIfAbsent(module, m ->
+        new IncrementalChaAlgorithm(createView(inventory, cfg))
+      );
+      cg = cha.extend(entries);
+      System.out.printf(
+        "   cg modulo: %d metodi risolti%n",
+        cha.resolvedMethods()
+      );
+    } else if (cfg.boundedCallGraph()) {
+      // CG per il batch risolto solo fin dove le BFS possono arrivare
+      BoundedChaAlgorithm cha = new BoundedChaAlgorithm(
+        createView(inventory, cfg),
+        idx,
+        cfg.maxDepth(),
+        cfg.pruneLibs()
+      );
+      cg = cha.build(entries);
+      System.out.printf(
+        "   cg limitato: %d metodi risolti, %d nodi%n",
+        cha.resolvedMethods(),
+        cg.getMethodSignatures().size()
+      );
+    } else if (cfg.cgThreads() > 1 && viewOnlyEdges) {
+      // CHA del batch su più thread: entry point divisi tra i worker (una view ciascuno),
+      // grafo identico
+      cg = new ParallelChaAlgorithm(
+        createView(inventory, cfg),
+        () -> createView(inventory, cfg),
+        cgPool(cfg.cgThreads()),
+        cfg.cgThreads()
+      ).build(entries);
+    } else {
+      // Build CG per il batch
+      cg = CallGraphAlgorithms
+        .create(cfg.cgAlgo(), createView(inventory, cfg))
+        .initialize(entries);
+    }
+    if (cache != null && cg != cache.graph) cache.merge(cg);
+
+    return () -> analyzeGraph(repo, module, cfgId, batch, idx, fixtures, cfg, cg);
+  }
+
+  private List<TestRecord> analyzeGraph(
+    String repo,
+    Path module,
+    String cfgId,
+    List<JavaSootMethod> batch,
+    ClassIndex idx,
+    TestFixtures fixtures,
+    AnalysisConfig cfg,
+    CallGraph cg
+  ) throws Exception {
     java.util.function.Function<String, String> simpleName = fqn -> {
       int i = fqn.lastIndexOf('.');
       return i >= 0 ? fqn.substring(i + 1) : fqn;
     };
 
-    List<TestRecord> results = new ArrayList<>(batch.size());
-    for (JavaSootMethod tm : batch) {
-      results.add(
-        analyzer.analyzeOne(
-          repo,
-          module,
-          cfgId,
+    // Raggiungibilità delle fixture calcolata una volta per classe di test nel batch
+    Map<String, ChaCallGraphAnalyzer.FixtureReach> setupReach =
+      new ConcurrentHashMap<>();
+    java.util.function.Predicate<JavaSootMethod> hasFixtures = tm ->
+      !fixtures.of(testClass(tm)).isEmpty();
+    // I motori su CSR guardano solo le chiamate dirette: i mock indiretti passano da SootUp
+    String engine = cfg.transitiveMocks() ? "sootup" : cfg.bfsEngine();
+    // Test senza fixture con gli stessi callee nel CG del batch: una BFS sola. Solo per il
+    // motore SootUp, negli altri è un fallback raro
+    TraversalMemo memo = "sootup".equals(engine)
+      ? TraversalMemo.of(
+        cg,
+        batch
+          .stream()
+          .filter(hasFixtures.negate())
+          .map(JavaSootMethod::getSignature)
+          .collect(Collectors.toList())
+      )
+      : null;
+    java.util.function.Function<JavaSootMethod, TestRecord> sootup = tm ->
+      analyzer.analyzeOne(
+        repo,
+        module,
+        cfgId,
+        cg,
+        tm,
+        idx,
+        cfg.maxDepth(),
+        cfg.pruneLibs(),
+        cfg.maxVisited(),
+        simpleName,
+        classHeu,
+        methodHeu,
+        hasFixtures.test(tm)
+          ? setupReach.computeIfAbsent(testClass(tm), c ->
+            analyzer.fixtureReach(
+              cg,
+              fixtures.of(c),
+              idx,
+              cfg.maxDepth(),
+              cfg.pruneLibs(),
+              cfg.maxVisited()
+            )
+          )
+          : null,
+        memo,
+        cfg.transitiveMocks(),
+        cfg.incremental()
+      );
+
+    List<TestRecord> results;
+    if ("msbfs".equals(engine)) {
+      // BFS multi-sorgente: blocchi di MultiSourceBfs.WIDTH test per passata sul CSR
+      CompactCallGraph ccg = CompactCallGraph.of(
+        cg,
+        idx,
+        mocks
+      );
+      List<List<JavaSootMethod>> chunks = new ArrayList<>();
+      for (int i = 0; i < batch.size(); i += MultiSourceBfs.WIDTH) {
+        chunks.add(
+          batch.subList(i, Math.min(batch.size(), i + MultiSourceBfs.WIDTH))
+        );
+      }
+      java.util.function.Function<List<JavaSootMethod>, List<TestRecord>> many =
+        chunk -> {
+          List<TestRecord> rs = compact.analyzeMany(
+            repo,
+            module,
+            cfgId,
+            ccg,
+            chunk,
+            cfg.maxDepth(),
+            cfg.pruneLibs(),
+            cfg.maxVisited(),
+            simpleName,
+            classHeu,
+            methodHeu,
+            cfg.incremental()
+          );
+          // Come sotto, i test con fixture passano dal percorso SootUp
+          for (int i = 0; i < rs.size(); i++) {
+            if (
+              rs.get(i) == null || hasFixtures.test(chunk.get(i))
+            ) rs.set(i, sootup.apply(chunk.get(i)));
+          }
+          return rs;
+        };
+      List<List<TestRecord>> parts;
+      if (cfg.testThreads() <= 1 || chunks.size() < 2) {
+        parts = new ArrayList<>(chunks.size());
+        for (List<JavaSootMethod> chunk : chunks) parts.add(many.apply(chunk));
+      } else {
+        parts = submit(
+          cfg.testThreads(),
+          () -> chunks.parallelStream().map(many).collect(Collectors.toList())
+        );
+      }
+      results = new ArrayList<>(batch.size());
+      for (List<TestRecord> part : parts) results.addAll(part);
+    } else {
+      java.util.function.Function<JavaSootMethod, TestRecord> one;
+      if ("summary".equals(engine)) {
+        // Snapshot che riusa gli ID del precedente: con cgPerModule i riassunti del
+        // modulo restano validi da un batch all'altro
+        CompactCallGraph ccg = CompactCallGraph.of(
           cg,
-          tm,
-          idx.projectProdClasses(),
-          idx.projectTestClasses(),
-          idx.projectAllClasses(),
-          cfg.maxDepth(),
-          cfg.pruneLibs(),
-          cfg.maxVisited(),
-          simpleName,
-          classHeu,
-          methodHeu
-        )
+          idx,
+          mocks,
+          cfg.cgPerModule() ? moduleSnapshots.get(module) : null
+        );
+        ReachSummaries summaries = moduleSummaries.computeIfAbsent(module, m ->
+          new ReachSummaries(cfg.pruneLibs(), cfg.summaryMb())
+        );
+        summaries.rebind(ccg);
+        if (cfg.cgPerModule()) moduleSnapshots.put(module, ccg);
+        one = tm -> {
+          TestRecord r = compact.analyzeSummarized(
+            repo,
+            module,
+            cfgId,
+            ccg,
+            summaries,
+            tm,
+            cfg.maxDepth(),
+            cfg.pruneLibs(),
+            cfg.maxVisited(),
+            simpleName,
+            classHeu,
+            methodHeu,
+            cfg.incremental()
+          );
+          return r != null ? r : sootup.apply(tm);
+        };
+      } else if ("compact".equals(engine)) {
+        // Snapshot CSR del CG: BFS su array primitivi, fallback SootUp se il test manca
+        CompactCallGraph ccg = CompactCallGraph.of(
+          cg,
+          idx,
+          mocks
+        );
+        one = tm -> {
+          TestRecord r = compact.analyzeOne(
+            repo,
+            module,
+            cfgId,
+            ccg,
+            tm,
+            cfg.maxDepth(),
+            cfg.pruneLibs(),
+            cfg.maxVisited(),
+            simpleName,
+            classHeu,
+            methodHeu,
+            cfg.incremental()
+          );
+          return r != null ? r : sootup.apply(tm);
+        };
+      } else {
+        one = sootup;
+      }
+      // I test con fixture passano dal percorso SootUp, che le unisce alla BFS
+      java.util.function.Function<JavaSootMethod, TestRecord> csr = one;
+      java.util.function.Function<JavaSootMethod, TestRecord> run =
+        fixtures.isEmpty()
+          ? csr
+          : tm -> hasFixtures.test(tm) ? sootup.apply(tm) : csr.apply(tm);
+
+      if (cfg.testThreads() <= 1 || batch.size() < 2) {
+        results = new ArrayList<>(batch.size());
+        for (JavaSootMethod tm : batch) results.add(run.apply(tm));
+      } else {
+        // Il CG è in sola lettura: BFS e statistiche dei test girano in parallelo,
+        // la collect ordinata mantiene l'ordine di discovery.
+        results = submit(
+          cfg.testThreads(),
+          () -> batch.parallelStream().map(run).collect(Collectors.toList())
+        );
+      }
+    }
+    if (memo != null && memo.hits() > 0) {
+      System.out.printf("   memo: %d test con callee già visti%n", memo.hits());
+    }
+    if ("summary".equals(engine)) {
+      System.out.printf(
+        "   riassunti modulo: %d%n",
+        moduleSummaries.get(module).size()
       );
     }
-    System.gc();
+    // In pipeline il GC esplicito fermerebbe anche la costruzione del batch successivo;
+    // con i batch adattivi falserebbe l'occupazione misurata dal controller; con più moduli
+    // nella stessa JVM fermerebbe anche gli altri moduli in corso
+    if (
+      !cfg.cgPerModule() &&
+      !cfg.pipelinedBatches() &&
+      !cfg.adaptiveBatches() &&
+      cfg.oneModulePerJvm()
+    ) System.gc();
     return results;
   }
+
+  @Override
+  public void endModule(Path module) {
+    ModuleCache cache = moduleCaches.remove(module);
+    if (cache != null && cache.dirty) {
+      cgStore.save(module, cache.key, cache.graph);
+    }
+    moduleGraphs.remove(module);
+    moduleSnapshots.remove(module);
+    moduleSummaries.remove(module);
+  }
+
+  /** Niente cgStore.save: gli archi accumulati fino all'OOM restano fuori dalla cache. */
+  @Override
+  public void discardModule(Path module) {
+    moduleCaches.remove(module);
+    moduleGraphs.remove(module);
+    moduleSnapshots.remove(module);
+    moduleSummaries.remove(module);
+  }
+
+  // ================= helpers =================
+
+  private static String testClass(JavaSootMethod tm) {
+    return tm.getSignature().getDeclClassType().getFullyQualifiedName();
+  }
+
+  private ModuleCache loadCache(
+    Path module,
+    ClassInventory inventory,
+    AnalysisConfig cfg
+  ) {
+    try {
+      String key = cgStore.key(inventory, cfg.useJars());
+      MutableCallGraph graph = cgStore.load(module, key);
+      if (graph == null) return new ModuleCache(
+        key,
+        new GraphBasedCallGraph(new ArrayList<>())
+      );
+      return new ModuleCache(key, graph);
+    } catch (Exception e) {
+      throw new IllegalStateException(
+        "cache call graph non disponibile per " + module,
+        e
+      );
+    }
+  }
+
+  /**
+   * Unione dei CG del modulo. Ogni metodo presente ha già tutti i suoi archi uscenti
+   * (dipendono solo dalla view), quindi un batch è coperto se ci sono tutti i suoi test:
+   * la BFS da un test vede solo la parte raggiungibile, identica a quella del CG del batch.
+   */
+  private static final class ModuleCache {
+
+    final String key;
+    final MutableCallGraph graph;
+    boolean dirty = false;
+
+    ModuleCache(String key, MutableCallGraph graph) {
+      this.key = key;
+      this.graph = graph;
+    }
+
+    boolean covers(List<MethodSignature> entries) {
+      for (MethodSignature m : entries) if (!graph.containsMethod(m)) return false;
+      return true;
+    }
+
+    /** Copia i metodi nuovi del CG del batch, con i loro archi nello stesso ordine. */
+    void merge(CallGraph cg) {
+      List<MethodSignature> fresh = new ArrayList<>();
+      for (MethodSignature m : cg.getMethodSignatures()) {
+        if (!graph.containsMethod(m)) fresh.add(m);
+      }
+      for (MethodSignature m : fresh) graph.addMethod(m);
+      for (MethodSignature m : fresh) {
+        for (CallGraph.Call call : cg.callsFrom(m)) graph.addCall(call);
+      }
+      if (!fresh.isEmpty()) dirty = true;
+    }
+  }
+
+  /** Crea view con prod/test + eventuali JAR. */
+  private JavaView createView(ClassInventory inventory, AnalysisConfig cfg) {
+    List<AnalysisInputLocation> locs = new ArrayList<>(
+      InventoryInputLocation.of(inventory)
+    );
+    if (cfg.useJars()) {
+      // NB: la selezione dei JAR viene fatta a monte nel ModuleAnalyzer, qui potresti ricevere un elenco già filtrato se necessario
+      // In questa versione minimale lasciamo alla View l'aggiunta eventuale (estendibile)
+    }
+    locs.add(new JrtFileSystemAnalysisInputLocation());
+    return viewFactory.create(locs);
+  }
+
+  private synchronized ForkJoinPool pool(int threads) {
+    if (pool == null || pool.getParallelism() != threads) {
+      if (pool != null) pool.shutdown();
+      pool = new ForkJoinPool(threads);
+    }
+    return pool;
+  }
+
+  private synchronized ForkJoinPool cgPool(int threads) {
+    if (cgPool == null || cgPool.getParallelism() != threads) {
+      if (cgPool != null) cgPool.shutdown();
+      cgPool = new ForkJoinPool(threads);
+    }
+    return cgPool;
+  }
+
+  private <T> T submit(int threads, Callable<T> task) throws Exception {
+    try {
+      return pool(threads).submit(task).get();
+    } catch (ExecutionException e) {
+      // Rilancia la causa originale (es. OutOfMemoryError) per la gestione nel ModuleAnalyzer
+      Throwable c = e.getCause();
+      if (c instanceof Error err) throw err;
+      if (c instanceof Exception ex) throw ex;
+      throw e;
+    }
+  }
 }
@@ -2,29 +2,36 @@
 package ghs.analyzer.pipeline;
 
 import ghs.analyzer.discovery.TestDiscovery;
+import ghs.analyzer.discovery.TestFixtures;
+import ghs.analyzer.graph.CallGraphAlgorithms;
+import ghs.analyzer.graph.ClassIndex;
+import ghs.analyzer.io.ClassInventory;
+import ghs.analyzer.io.IncrementalStore;
 import ghs.analyzer.io.InputResolver;
 import ghs.analyzer.io.OutputSink;
 import ghs.analyzer.io.ProgressStore;
 import ghs.analyzer.model.AnalysisConfig;
+import ghs.analyzer.model.IncrementalEntry;
 import ghs.analyzer.model.ModuleInputs;
 import ghs.analyzer.model.TestRecord;
+import ghs.analyzer.sootupview.InventoryInputLocation;
 import ghs.analyzer.sootupview.ViewFactory;
+import ghs.analyzer.util.MemoryUtil;
 import ghs.analyzer.util.PathUtil;
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import sootup.core.inputlocation.AnalysisInputLocation;
-import sootup.java.bytecode.frontend.inputlocation.JavaClassPathAnalysisInputLocation;
 import sootup.java.bytecode.frontend.inputlocation.JrtFileSystemAnalysisInputLocation;
 import sootup.java.core.JavaSootMethod;
 import sootup.java.core.views.JavaView;
 
 /**
  * Analizza un singolo modulo Maven orchestrando warm-up, auto-tuning, batching e resume.
- * Dipende da astrazioni (DIP): InputResolver, ViewFactory, TestDiscovery, ProgressStore, OutputSink e AnalyzerStrategy.
+ * Dipende da astrazioni (DIP): InputResolver, ViewFactory, TestDiscovery, ProgressStore, IncrementalStore, OutputSink e AnalyzerStrategy.
  */
 public final class ModuleAnalyzer {
 
@@ -32,6 +39,7 @@ public final class ModuleAnalyzer {
   private final ViewFactory viewFactory;
   private final TestDiscovery discovery;
   private final ProgressStore progress;
+  private final IncrementalStore incremental;
   private final OutputSink output;
   private final AnalyzerStrategy fast;
   private final AnalyzerStrategy full;
@@ -41,6 +49,7 @@ public final class ModuleAnalyzer {
     ViewFactory viewFactory,
     TestDiscovery discovery,
     ProgressStore progress,
+    IncrementalStore incremental,
     OutputSink output,
     AnalyzerStrategy fast,
     AnalyzerStrategy full
@@ -49,6 +58,7 @@ public final class ModuleAnalyzer {
     this.viewFactory = viewFactory;
     this.discovery = discovery;
     this.progress = progress;
+    this.incremental = incremental;
     this.output = output;
     this.fast = fast;
     this.full = full;
@@ -57,29 +67,48 @@ public final class ModuleAnalyzer {
   /** Punto di ingresso per l'analisi di un modulo specifico. */
   public void analyzeModule(Path baseDir, Path module, AnalysisConfig cfg)
     throws Exception {
+    analyzeModule(baseDir, module, cfg, null);
+  }
+
+  /**
+   * Come sopra, con l'inventario già costruito da chi ha schedulato il modulo
+   * (ModuleScheduler); se è null lo si costruisce qui.
+   */
+  public void analyzeModule(
+    Path baseDir,
+    Path module,
+    AnalysisConfig cfg,
+    ClassInventory scheduled
+  ) throws Exception {
     System.out.println("Modulo: " + baseDir.relativize(module));
 
-    // 1) Risolvi input (classi prod/test, JAR opzionali)
-    ModuleInputs inputs = inputResolver.resolveInputsForModule(module);
-    if (
-      !Files.isDirectory(inputs.prodClasses()) ||
-      !Files.isDirectory(inputs.testClasses())
-    ) {
+    // 1-2) Input (classi prod/test) e inventario delle class file: una sola visita
+    // delle directory per tutto il modulo
+    ClassInventory inventory = scheduled != null
+      ? scheduled
+      : scanInputs(module);
+    if (inventory == null) {
       System.out.println("   (skip: mancano classi prod/test)");
       return;
     }
+    System.out.printf(
+      "   classi: %d (%d KB)%n",
+      inventory.size(),
+      inventory.totalBytes() / 1024
+    );
 
-    // 2) Warm-up view: scopro i test ed evito JAR per velocità
-    JavaView warmupView = createWarmupView(inputs);
-
-    // 3) Indici progetto (prod/test/all)
-    Set<String> projectProdClasses = listClassFQNs(inputs.prodClasses());
-    Set<String> projectTestClasses = listClassFQNs(inputs.testClasses());
-    Set<String> projectAllClasses = new HashSet<>(projectProdClasses);
-    projectAllClasses.addAll(projectTestClasses);
+    // 3) Warm-up view (scopro i test ed evito JAR per velocità) e indice delle classi
+    JavaView warmupView = createWarmupView(inventory);
+    ClassIndex index = ClassIndex.of(
+      inventory.prodClasses(),
+      inventory.testClasses()
+    );
 
     // 4) Discovery test
-    List<JavaSootMethod> testMethods = discovery.discover(warmupView);
+    List<JavaSootMethod> testMethods = discovery.discover(
+      warmupView,
+      inventory
+    );
     if (testMethods.isEmpty()) {
       System.out.println("   Nessun @Test trovato.");
       return;
@@ -91,22 +120,21 @@ public final class ModuleAnalyzer {
     // 6) Resume/Progress
     String repoName = PathUtil.repoName(baseDir, module);
     String cfgId = makeCfgId(cfg, tuning);
-    if (cfg.resumeReset()) progress.reset(module, cfgId);
-    Set<String> already = cfg.resume()
+    if (cfg.resumeReset()) {
+      progress.reset(module, cfgId);
+      incremental.reset(module, cfgId);
+    }
+    // In modalità incremental i test già fatti si decidono per impronta, non per nome
+    Set<String> already = cfg.resume() && !cfg.incremental()
       ? progress.load(module, cfgId)
       : Set.of();
-    if (cfg.resume() && !already.isEmpty()) {
+    if (cfg.incremental()) {
+      System.out.printf("   resume: sostituito da incremental (cfgId=%s)%n", cfgId);
+    } else if (cfg.resume() && !already.isEmpty()) {
       int before = testMethods.size();
       testMethods = testMethods
         .stream()
-        .filter(tm -> {
-          var s = tm.getSignature();
-          String key =
-            s.getDeclClassType().getFullyQualifiedName() +
-            "#" +
-            s.getSubSignature();
-          return !already.contains(key);
-        })
+        .filter(tm -> !already.contains(testKey(tm)))
         .collect(Collectors.toList());
       System.out.printf(
         "   resume: %d già fatti, %d da fare (cfgId=%s)%n",
@@ -121,6 +149,33 @@ public final class ModuleAnalyzer {
       );
     }
 
+    // 6b) Incremental: i test con impronta invariata riprendono il record salvato
+    BytecodeFingerprints prints = null;
+    Map<String, IncrementalEntry> kept = new LinkedHashMap<>();
+    if (cfg.incremental()) {
+      prints = BytecodeFingerprints.of(inventory, cfgId);
+      Map<String, IncrementalEntry> stored = incremental.load(module, cfgId);
+      List<TestRecord> carried = new ArrayList<>();
+      List<JavaSootMethod> changed = new ArrayList<>();
+      for (JavaSootMethod tm : testMethods) {
+        IncrementalEntry e = stored.get(testKey(tm));
+        if (e != null && e.fingerprint().equals(prints.fingerprint(e.classes()))) {
+          carried.add(relocate(e.record(), repoName, module, cfgId));
+          kept.put(e.testKey(), e);
+        } else {
+          changed.add(tm);
+        }
+      }
+      // Il file di output viene riscritto: i record dei test invariati vanno riportati
+      writeBatch(module, cfgId, false, carried);
+      System.out.printf(
+        "   incremental: %d invariati, %d da rianalizzare%n",
+        carried.size(),
+        changed.size()
+      );
+      testMethods = changed;
+    }
+
     // 7) Log configurazione effettiva
     System.out.println("   Test methods: " + testMethods.size());
     System.out.println(
@@ -138,15 +193,19 @@ public final class ModuleAnalyzer {
     );
 
     if (testMethods.isEmpty()) {
+      if (cfg.incremental()) incremental.rewrite(module, cfgId, kept.values());
       System.out.println("   Non resta nulla da fare per questo modulo.");
       return;
     }
 
     AnalyzerStrategy strategy = tuning.fastMode() ? fast : full;
-    AnalyzerStrategy.ProjectIndex index = new AnalyzerStrategy.ProjectIndex(
-      projectProdClasses,
-      projectTestClasses,
-      projectAllClasses
+    // Fixture cercate solo per i test rimasti; la modalità FAST non le usa
+    TestFixtures fixtures = cfg.fixtures() && !tuning.fastMode()
+      ? TestFixtures.find(warmupView, testMethods, index)
+      : TestFixtures.NONE;
+    if (cfg.fixtures() && !tuning.fastMode()) System.out.printf(
+      "   fixture: %d classi di test con setup%n",
+      fixtures.classCount()
     );
 
     // 8) Batching con gruppi (ricreazione view demandata alla strategy FULL)
@@ -157,140 +216,595 @@ public final class ModuleAnalyzer {
       ? 1
       : (int) Math.ceil(totalBatches / (double) tuning.batchesPerView());
 
-    for (int g = 0; g < groups; g++) {
-      int firstBatch = tuning.batchesPerView() <= 0
-        ? 0
-        : g * tuning.batchesPerView();
-      int lastBatchExcl = tuning.batchesPerView() <= 0
-        ? totalBatches
-        : Math.min((g + 1) * tuning.batchesPerView(), totalBatches);
-
+    AnalysisConfig batchCfg = cfg.withTuning(
+      tuning.maxVisited(),
+      batchSize,
+      tuning.useJars(),
+      tuning.batchesPerView()
+    );
+    final BytecodeFingerprints fp = prints;
+    BatchSink sink = results ->
+      sinkBatch(module, cfgId, cfg, fp, kept, results);
+    if (cfg.pipelinedBatches()) {
+      // Costruzione del CG del batch successivo sovrapposta ad analisi e scrittura
+      System.out.printf("   pipeline: %d CG al massimo%n", cfg.pipelineGraphs());
+      final List<JavaSootMethod> tests = testMethods;
+      BatchPipeline pipeline = new BatchPipeline(cfg.pipelineGraphs());
+      int sequential = -1;
       try {
-        for (int b = firstBatch; b < lastBatchExcl; b++) {
-          int startIdx = b * batchSize;
-          int endIdx = Math.min(startIdx + batchSize, total);
-
-          long usedMB =
-            (Runtime.getRuntime().totalMemory() -
-              Runtime.getRuntime().freeMemory()) /
-            (1024 * 1024);
-          long maxMB = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+        try {
+          pipeline.run(
+            totalBatches,
+            b -> {
+              int startIdx = b * batchSize;
+              int endIdx = Math.min(startIdx + batchSize, total);
+              System.out.printf(
+                "   batch %d/%d [%d..%d)%n",
+                (b + 1),
+                totalBatches,
+                startIdx,
+                endIdx
+              );
+              return strategy.prepareBatch(
+                repoName,
+                module,
+                cfgId,
+                tests.subList(startIdx, endIdx),
+                index,
+                inventory,
+                fixtures,
+                batchCfg
+              );
+            },
+            (b, results) -> sink.accept(results)
+          );
+        } catch (OutOfMemoryError oom) {
+          // I batch già scritti restano: dal batch fallito si prosegue in sequenza, dove
+          // bisectOom divide i batch in OOM
+          int from = cfg.bisectOom() ? pipeline.restartFrom() : -1;
+          if (from < 0) throw oom;
+          strategy.discardModule(module);
+          System.out.printf(
+            "   OOM nella pipeline al batch %d: proseguo in sequenza%n",
+            (from + 1)
+          );
+          for (int b = from; b < totalBatches; b++) {
+            sequential = b;
+            int startIdx = b * batchSize;
+            int endIdx = Math.min(startIdx + batchSize, total);
+            System.out.printf(
+              "   batch %d/%d [%d..%d)%n",
+              (b + 1),
+              totalBatches,
+              startIdx,
+              endIdx
+            );
+            analyzeBatch(
+              strategy,
+              repoName,
+              module,
+              cfgId,
+              tests.subList(startIdx, endIdx),
+              index,
+              inventory,
+              fixtures,
+              batchCfg,
+              sink
+            );
+          }
+        }
+      } catch (OutOfMemoryError oom) {
+        // Lo stato del modulo (es. una cache CG aggiornata a metà) non va salvato
+        strategy.discardModule(module);
+        int failed = sequential >= 0
+          ? sequential
+          : Math.max(0, pipeline.failedBatch());
+        try {
+          recordOom(
+            repoName,
+            module,
+            tuning.batchesPerView() <= 0 ? 0 : failed / tuning.batchesPerView(),
+            cfgId
+          );
+        } catch (Exception ignored) {}
+        throw oom;
+      } finally {
+        strategy.endModule(module);
+      }
+      if (cfg.incremental()) incremental.rewrite(module, cfgId, kept.values());
+      System.out.println();
+      return;
+    }
+
+    if (cfg.adaptiveBatches()) {
+      // Dimensione decisa dal controller dopo ogni batch, nessun System.gc() esplicito
+      int b = 0;
+      try (
+        BatchSizeController sizing = new BatchSizeController(
+          batchSize,
+          cfg.targetHeapPct(),
+          Math.max(1, batchSize / 8),
+          batchSize * 8
+        )
+      ) {
+        for (int startIdx = 0; startIdx < total; b++) {
+          int endIdx = Math.min(startIdx + sizing.size(), total);
           System.out.printf(
-            "   batch %d/%d [%d..%d)%n",
+            "   batch %d [%d..%d) di %d%n",
             (b + 1),
-            totalBatches,
             startIdx,
-            endIdx
+            endIdx,
+            total
           );
-          System.out.printf("   mem %d/%d MiB%n", usedMB, maxMB);
-
-          List<JavaSootMethod> batch = testMethods.subList(startIdx, endIdx);
-          List<TestRecord> results = strategy.analyzeBatch(
+          System.out.printf(
+            "   mem %d/%d MiB%n",
+            MemoryUtil.usedMB(),
+            MemoryUtil.maxMB()
+          );
+          sizing.beforeBatch();
+          int ooms = analyzeBatch(
+            strategy,
             repoName,
             module,
             cfgId,
-            batch,
+            testMethods.subList(startIdx, endIdx),
             index,
-            new AnalysisConfig(
-              cfg.baseDir(),
-              cfg.outPath(),
-              cfg.maxDepth(),
-              cfg.pruneLibs(),
-              tuning.maxVisited(),
-              batchSize,
-              cfg.splitByRepo(),
-              cfg.append(),
-              tuning.useJars(),
-              cfg.resume(),
-              cfg.resumeReset(),
-              cfg.maxJars(),
-              cfg.ignoreJarsIfTestsOver(),
-              tuning.batchesPerView(),
-              cfg.autoTune(),
-              cfg.bigThr(),
-              cfg.hugeThr(),
-              cfg.autoBatchBig(),
-              cfg.autoBatchHuge(),
-              cfg.autoVisitedBig(),
-              cfg.autoVisitedHuge(),
-              cfg.autoFastHeuristic(),
-              cfg.onlyFromFile()
-            )
+            inventory,
+            fixtures,
+            batchCfg,
+            sink
           );
-
-          for (TestRecord r : results) {
-            output.write(r);
-            if (cfg.resume()) {
-              String key = r.testClass() + "#" + r.testMethod();
-              progress.append(module, cfgId, key);
-            }
-          }
-          System.gc();
+          if (ooms > 0) sizing.afterOom();
+          else sizing.afterBatch();
+          startIdx = endIdx;
         }
       } catch (OutOfMemoryError oom) {
+        strategy.discardModule(module);
         try {
-          Path ooms = Paths.get("oom-modules.txt");
-          Files.writeString(
-            ooms,
-            String.format(
-              Locale.ROOT,
-              "%s %s group=%d cfg=%s%n",
-              repoName,
-              module,
-              g,
-              cfgId
-            ),
-            StandardCharsets.UTF_8,
-            Files.exists(ooms)
-              ? StandardOpenOption.APPEND
-              : StandardOpenOption.CREATE
+          recordOom(
+            repoName,
+            module,
+            tuning.batchesPerView() <= 0 ? 0 : b / tuning.batchesPerView(),
+            cfgId
           );
         } catch (Exception ignored) {}
         throw oom;
       } finally {
-        System.gc();
+        strategy.endModule(module);
+      }
+      if (cfg.incremental()) incremental.rewrite(module, cfgId, kept.values());
+      System.out.println();
+      return;
+    }
+
+    try {
+      for (int g = 0; g < groups; g++) {
+        int firstBatch = tuning.batchesPerView() <= 0
+          ? 0
+          : g * tuning.batchesPerView();
+        int lastBatchExcl = tuning.batchesPerView() <= 0
+          ? totalBatches
+          : Math.min((g + 1) * tuning.batchesPerView(), totalBatches);
+
+        try {
+          for (int b = firstBatch; b < lastBatchExcl; b++) {
+            int startIdx = b * batchSize;
+            int endIdx = Math.min(startIdx + batchSize, total);
+
+            long usedMB =
+              (Runtime.getRuntime().totalMemory() -
+                Runtime.getRuntime().freeMemory()) /
+              (1024 * 1024);
+            long maxMB = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+            System.out.printf(
+              "   batch %d/%d [%d..%d)%n",
+              (b + 1),
+              totalBatches,
+              startIdx,
+              endIdx
+            );
+            System.out.printf("   mem %d/%d MiB%n", usedMB, maxMB);
+
+            analyzeBatch(
+              strategy,
+              repoName,
+              module,
+              cfgId,
+              testMethods.subList(startIdx, endIdx),
+              index,
+              inventory,
+              fixtures,
+              batchCfg,
+              sink
+            );
+            if (!cfg.cgPerModule() && cfg.oneModulePerJvm()) System.gc();
+          }
+        } catch (OutOfMemoryError oom) {
+          strategy.discardModule(module);
+          try {
+            recordOom(repoName, module, g, cfgId);
+          } catch (Exception ignored) {}
+          throw oom;
+        } finally {
+          if (!cfg.cgPerModule() && cfg.oneModulePerJvm()) System.gc();
+        }
       }
+    } finally {
+      strategy.endModule(module);
     }
+    // Modulo completo: lo store tiene solo i test attuali, una voce ciascuno
+    if (cfg.incremental()) incremental.rewrite(module, cfgId, kept.values());
 
     System.out.println(); // riga vuota estetica
   }
 
   // ================= helpers =================
 
-  private JavaView createWarmupView(ModuleInputs inputs) {
-    List<AnalysisInputLocation> warmupLocs = new ArrayList<>();
-    warmupLocs.add(
-      new JavaClassPathAnalysisInputLocation(inputs.prodClasses().toString())
+  /** Destinazione dei risultati di un batch o di una sua parte. */
+  @FunctionalInterface
+  private interface BatchSink {
+    void accept(List<TestRecord> results) throws Exception;
+  }
+
+  /**
+   * Analizza il batch e ne passa i risultati al sink. Con bisectOom un OutOfMemoryError non
+   * chiude il modulo: si scarta lo stato di modulo della strategy senza salvarlo (la view
+   * del batch è già irraggiungibile) e si riprovano le due metà, fino al singolo test. Le
+   * parti riuscite vanno al sink subito e nell'ordine di discovery, quindi restano nel
+   * progress; un test che non entra da solo finisce in oom-tests.txt. Restituisce il numero
+   * di OOM incontrati.
+   */
+  private int analyzeBatch(
+    AnalyzerStrategy strategy,
+    String repoName,
+    Path module,
+    String cfgId,
+    List<JavaSootMethod> batch,
+    ClassIndex index,
+    ClassInventory inventory,
+    TestFixtures fixtures,
+    AnalysisConfig cfg,
+    BatchSink sink
+  ) throws Exception {
+    return bisect(
+      strategy,
+      repoName,
+      module,
+      cfgId,
+      batch,
+      index,
+      inventory,
+      fixtures,
+      cfg,
+      sink,
+      false,
+      new Bisection()
     );
-    warmupLocs.add(
-      new JavaClassPathAnalysisInputLocation(inputs.testClasses().toString())
+  }
+
+  /** Stato condiviso dalle chiamate di bisect su uno stesso batch. */
+  private static final class Bisection {
+
+    /** Almeno un test è entrato da solo: il modulo non ha un costo fisso eccessivo. */
+    boolean fits;
+    /** Test singoli andati in OOM finché fits è false. */
+    int aloneOoms;
+  }
+
+  /**
+   * Passo di analyzeBatch. Se va in OOM anche una metà (halved) e non si sa ancora se il
+   * modulo regge un test da solo (fits), prima di dividere ancora si prova il primo test. Se
+   * non entra va in oom-tests.txt e si prosegue sugli altri: può essere solo il test
+   * pesante. Al secondo test singolo in OOM senza che nessuno sia entrato il costo è quello
+   * fisso di view e CG del modulo, e scendere fino al singolo test costerebbe circa 2N
+   * ricostruzioni senza salvare nulla: l'errore risale e il modulo va in oom-modules come
+   * senza bisectOom.
+   */
+  private int bisect(
+    AnalyzerStrategy strategy,
+    String repoName,
+    Path module,
+    String cfgId,
+    List<JavaSootMethod> batch,
+    ClassIndex index,
+    ClassInventory inventory,
+    TestFixtures fixtures,
+    AnalysisConfig cfg,
+    BatchSink sink,
+    boolean halved,
+    Bisection state
+  ) throws Exception {
+    List<TestRecord> results;
+    try {
+      results = strategy.analyzeBatch(
+        repoName,
+        module,
+        cfgId,
+        batch,
+        index,
+        inventory,
+        fixtures,
+        cfg
+      );
+    } catch (OutOfMemoryError oom) {
+      if (!cfg.bisectOom()) throw oom;
+      strategy.discardModule(module);
+      if (batch.size() == 1) {
+        skipAlone(repoName, module, cfgId, batch.get(0), state, oom);
+        return 1;
+      }
+      List<JavaSootMethod> rest = batch;
+      int ooms = 1;
+      if (halved && !state.fits) {
+        System.out.printf(
+          "   OOM anche su %d test: provo %s da solo%n",
+          batch.size(),
+          testKey(batch.get(0))
+        );
+        try {
+          results = strategy.analyzeBatch(
+            repoName,
+            module,
+            cfgId,
+            batch.subList(0, 1),
+            index,
+            inventory,
+            fixtures,
+            cfg
+          );
+        } catch (OutOfMemoryError again) {
+          strategy.discardModule(module);
+          skipAlone(repoName, module, cfgId, batch.get(0), state, again);
+          results = null;
+          ooms++;
+        }
+        if (results != null) {
+          sink.accept(results);
+          state.fits = true;
+        }
+        rest = batch.subList(1, batch.size());
+      }
+      if (rest.size() == 1) return (
+        ooms +
+        bisect(
+          strategy,
+          repoName,
+          module,
+          cfgId,
+          rest,
+          index,
+          inventory,
+          fixtures,
+          cfg,
+          sink,
+          true,
+          state
+        )
+      );
+      int mid = rest.size() / 2;
+      System.out.printf(
+        "   OOM su %d test: riprovo %d + %d%n",
+        rest.size(),
+        mid,
+        rest.size() - mid
+      );
+      return (
+        ooms +
+        bisect(
+          strategy,
+          repoName,
+          module,
+          cfgId,
+          rest.subList(0, mid),
+          index,
+          inventory,
+          fixtures,
+          cfg,
+          sink,
+          true,
+          state
+        ) +
+        bisect(
+          strategy,
+          repoName,
+          module,
+          cfgId,
+          rest.subList(mid, rest.size()),
+          index,
+          inventory,
+          fixtures,
+          cfg,
+          sink,
+          true,
+          state
+        )
+      );
+    }
+    sink.accept(results);
+    return 0;
+  }
+
+  /**
+   * Registra in oom-tests.txt un test andato in OOM da solo. Se nessun test del batch è
+   * ancora entrato da solo e questo è il secondo, rilancia oom: costo fisso del modulo.
+   */
+  private static void skipAlone(
+    String repoName,
+    Path module,
+    String cfgId,
+    JavaSootMethod tm,
+    Bisection state,
+    OutOfMemoryError oom
+  ) throws java.io.IOException {
+    String test = testKey(tm);
+    System.out.println("   OOM anche da solo, saltato: " + test);
+    recordSkipped(repoName, module, cfgId, test, "OutOfMemoryError da solo");
+    if (!state.fits && ++state.aloneOoms >= 2) {
+      System.out.println("   OOM su due test presi da soli: costo fisso del modulo");
+      throw oom;
+    }
+  }
+
+  /** Scrittura dei record del batch e, in modalità incremental, delle loro impronte. */
+  private void sinkBatch(
+    Path module,
+    String cfgId,
+    AnalysisConfig cfg,
+    BytecodeFingerprints prints,
+    Map<String, IncrementalEntry> kept,
+    List<TestRecord> results
+  ) throws Exception {
+    // Il progress non serve in modalità incremental: decidono le impronte
+    writeBatch(
+      module,
+      cfgId,
+      cfg.resume() && !cfg.incremental(),
+      results
     );
-    warmupLocs.add(new JrtFileSystemAnalysisInputLocation());
-    return viewFactory.create(warmupLocs);
+    if (prints == null) return;
+    List<IncrementalEntry> entries = new ArrayList<>(results.size());
+    for (TestRecord r : results) {
+      IncrementalEntry e = new IncrementalEntry(
+        r.testClass() + "#" + r.testMethod(),
+        prints.fingerprint(r.reachedClasses()),
+        new ArrayList<>(new TreeSet<>(r.reachedClasses())),
+        r
+      );
+      entries.add(e);
+      kept.put(e.testKey(), e);
+    }
+    incremental.append(module, cfgId, entries);
   }
 
-  private static Set<String> listClassFQNs(Path classesDir)
-    throws java.io.IOException {
-    if (!Files.isDirectory(classesDir)) return Set.of();
-    try (Stream<Path> s = Files.walk(classesDir)) {
-      return s
-        .filter(Files::isRegularFile)
-        .filter(p -> p.toString().endsWith(".class"))
-        .map(p -> PathUtil.toFqn(classesDir, p))
-        .collect(Collectors.toSet());
+  /**
+   * Scrive i record del batch e solo dopo il flush registra il progress: con più moduli
+   * in parallelo le righe di un batch restano contigue e il resume non salta record persi.
+   */
+  private void writeBatch(
+    Path module,
+    String cfgId,
+    boolean resume,
+    List<TestRecord> results
+  ) throws Exception {
+    synchronized (output) {
+      for (TestRecord r : results) output.write(r);
+      output.flush();
+    }
+    if (resume) for (TestRecord r : results) {
+      String key = r.testClass() + "#" + r.testMethod();
+      progress.append(module, cfgId, key);
     }
   }
 
+  private static String testKey(JavaSootMethod tm) {
+    var s = tm.getSignature();
+    return s.getDeclClassType().getFullyQualifiedName() + "#" + s.getSubSignature();
+  }
+
+  /** Record salvato riportato al repo/modulo/cfgId dell'esecuzione corrente. */
+  private static TestRecord relocate(
+    TestRecord r,
+    String repoName,
+    Path module,
+    String cfgId
+  ) {
+    return new TestRecord(
+      repoName,
+      module.toString(),
+      cfgId,
+      r.testClass(),
+      r.testMethod(),
+      r.focalClass(),
+      r.focalMethod(),
+      r.cgStats(),
+      r.usesMocks(),
+      r.unitIntegrationScore(),
+      r.reachedClasses()
+    );
+  }
+
+  private static synchronized void recordSkipped(
+    String repoName,
+    Path module,
+    String cfgId,
+    String test,
+    String reason
+  ) throws java.io.IOException {
+    Path skipped = Paths.get("oom-tests.txt");
+    Files.writeString(
+      skipped,
+      String.format(
+        Locale.ROOT,
+        "%s %s cfg=%s test=%s reason=%s%n",
+        repoName,
+        module,
+        cfgId,
+        test,
+        reason
+      ),
+      StandardCharsets.UTF_8,
+      Files.exists(skipped)
+        ? StandardOpenOption.APPEND
+        : StandardOpenOption.CREATE
+    );
+  }
+
+  private static synchronized void recordOom(
+    String repoName,
+    Path module,
+    int group,
+    String cfgId
+  ) throws java.io.IOException {
+    Path ooms = Paths.get("oom-modules.txt");
+    Files.writeString(
+      ooms,
+      String.format(
+        Locale.ROOT,
+        "%s %s group=%d cfg=%s%n",
+        repoName,
+        module,
+        group,
+        cfgId
+      ),
+      StandardCharsets.UTF_8,
+      Files.exists(ooms) ? StandardOpenOption.APPEND : StandardOpenOption.CREATE
+    );
+  }
+
+  /** Inventario delle classi prod/test risolte da inputResolver; null se mancano. */
+  private ClassInventory scanInputs(Path module) throws IOException {
+    ModuleInputs inputs = inputResolver.resolveInputsForModule(module);
+    if (
+      !Files.isDirectory(inputs.prodClasses()) ||
+      !Files.isDirectory(inputs.testClasses())
+    ) return null;
+    return ClassInventory.scan(inputs.prodClasses(), inputs.testClasses());
+  }
+
+  private JavaView createWarmupView(ClassInventory inventory) {
+    List<AnalysisInputLocation> warmupLocs = new ArrayList<>(
+      InventoryInputLocation.of(inventory)
+    );
+    warmupLocs.add(new JrtFileSystemAnalysisInputLocation());
+    return viewFactory.create(warmupLocs);
+  }
+
   private static String makeCfgId(AnalysisConfig cfg, Tuning t) {
     return String.format(
       Locale.ROOT,
-      "d%d-v%d-p%s-j%s-b%d%s",
+      "d%d-v%d-p%s-j%s-b%d%s%s%s%s%s",
       cfg.maxDepth(),
       t.maxVisited(),
       cfg.pruneLibs() ? "1" : "0",
       t.useJars() ? "1" : "0",
       t.batchSize(),
-      t.fastMode() ? "-F" : ""
+      // F2: focal class validata sulle classi prod (prima il nome indovinato com'era)
+      t.fastMode() ? "-F2" : "",
+      CallGraphAlgorithms.isCha(cfg.cgAlgo()) ? "" : "-" + cfg.cgAlgo(),
+      // Con i batch adattivi b è solo la dimensione iniziale
+      cfg.adaptiveBatches() ? "-ab" : "",
+      cfg.fixtures() && !t.fastMode() ? "-fx" : "",
+      cfg.transitiveMocks() && !t.fastMode() ? "-tm" : ""
     );
   }
 
@@ -304,7 +818,10 @@ public final class ModuleAnalyzer {
     if (cfg.autoTune()) {
       if (nTests >= cfg.hugeThr()) {
         effBatchSize = Math.max(cfg.batchSize(), cfg.autoBatchHuge());
-        effMaxVisited = Math.min(cfg.maxVisited(), cfg.autoVisitedHuge());
+        // Con il CG limitato il grafo resta piccolo anche sui moduli enormi: niente tetto
+        effMaxVisited = cfg.boundedCallGraph()
+          ? cfg.maxVisited()
+          : Math.min(cfg.maxVisited(), cfg.autoVisitedHuge());
         effBatchesPerView = 0;
         effUseJars = false;
         fastMode = cfg.autoFastHeuristic();
@@ -0,0 +1,332 @@
+package ghs.analyzer.pipeline;
+
+import ghs.analyzer.io.OutputSink;
+import ghs.analyzer.io.ProgressStore;
+import ghs.analyzer.io.RecordFrames;
+import ghs.analyzer.model.AnalysisConfig;
+import ghs.analyzer.model.TestRecord;
+import ghs.analyzer.util.PathUtil;
+import java.io.IOException;
+import java.net.*;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coda dei moduli servita via TCP ai worker remoti (app.RemoteWorkerMain): ogni worker
+ * chiede un modulo quando è libero, quindi i moduli grandi non lasciano indietro un host
+ * come con lo sharding statico. I record arrivano in streaming (framing di RecordFrames)
+ * e finiscono nell'OutputSink del coordinatore con repo e module del coordinatore.
+ *
+ * <p>Se un worker si disconnette o segnala un OutOfMemoryError, il suo modulo torna in testa
+ * alla coda per un altro worker, fino a MAX_ATTEMPTS tentativi; i test già inoltrati non
+ * vengono scritti due volte. Lo stesso vale per un worker che tace più di workerTimeoutS
+ * secondi: i worker mandano un HEARTBEAT ogni RecordFrames.HEARTBEAT_S secondi anche a metà
+ * di un batch, quindi il limite misura la vita del worker, non la durata dei batch. Un
+ * errore non di memoria chiude il modulo come nell'analisi locale.
+ *
+ * <p>Il progress del resume lo registra il coordinatore, dopo il flush del proprio sink a
+ * ogni FLUSHED e a fine modulo; i worker lo leggono soltanto. Se non vedono lo stesso file
+ * system rifanno anche i test già fatti, che il coordinatore non riscrive.
+ */
+public final class ModuleCoordinator {
+
+  private static final int MAX_ATTEMPTS = 3;
+  private static final long POLL_MS = 1000;
+
+  private final AnalysisConfig cfg;
+  private final OutputSink out;
+  /** null senza resume (o in modalità incremental). */
+  private final ProgressStore progress;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  private final Deque<Path> queue = new ArrayDeque<>();
+  private final Map<Path, Integer> attempts = new HashMap<>();
+  private final Map<Path, Set<String>> sent = new ConcurrentHashMap<>();
+  private int remaining = 0;
+  private Throwable failure = null;
+
+  public ModuleCoordinator(
+    AnalysisConfig cfg,
+    OutputSink out,
+    ProgressStore progress
+  ) {
+    this.cfg = cfg;
+    this.out = out;
+    this.progress = cfg.resume() && !cfg.incremental() ? progress : null;
+  }
+
+  public void runAll(Path baseDir, List<Path> modules) throws Exception {
+    lock.lock();
+    try {
+      queue.addAll(modules);
+      remaining = modules.size();
+    } finally {
+      lock.unlock();
+    }
+    InetSocketAddress addr = address(cfg.coordinator());
+    try (ServerSocket server = new ServerSocket()) {
+      server.setReuseAddress(true);
+      server.bind(addr);
+      System.out.printf(
+        "Coordinatore su %s: %d moduli in coda%n",
+        server.getLocalSocketAddress(),
+        modules.size()
+      );
+      Thread acceptor = new Thread(
+        () -> {
+          while (!server.isClosed()) {
+            try {
+              Socket s = server.accept();
+              Thread t = new Thread(() -> serve(baseDir, s), "coordinator-conn");
+              t.setDaemon(true);
+              t.start();
+            } catch (IOException e) {
+              if (!server.isClosed()) System.out.println(
+                "   coordinatore: accept fallita: " + e.getMessage()
+              );
+            }
+          }
+        },
+        "coordinator-accept"
+      );
+      acceptor.setDaemon(true);
+      acceptor.start();
+      awaitDone();
+    }
+    rethrow();
+  }
+
+  /** "host:porta" oppure solo "porta" (loopback). */
+  public static InetSocketAddress address(String spec) {
+    String s = spec.trim();
+    int colon = s.lastIndexOf(':');
+    try {
+      if (colon < 0) return new InetSocketAddress(
+        InetAddress.getLoopbackAddress(),
+        Integer.parseInt(s)
+      );
+      return new InetSocketAddress(
+        s.substring(0, colon),
+        Integer.parseInt(s.substring(colon + 1))
+      );
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+        "coordinator non valido: " + spec + " (atteso host:porta o porta)"
+      );
+    }
+  }
+
+  // ================= connessione =================
+
+  private void serve(Path baseDir, Socket socket) {
+    Path current = null;
+    String peer = String.valueOf(socket.getRemoteSocketAddress());
+    try (socket) {
+      socket.setKeepAlive(true);
+      socket.setTcpNoDelay(true);
+      socket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(timeoutS()));
+      RecordFrames.Reader in = new RecordFrames.Reader(socket.getInputStream());
+      RecordFrames.Writer w = new RecordFrames.Writer(socket.getOutputStream());
+      System.out.println("   coordinatore: worker connesso " + peer);
+      while (true) {
+        int ready = in.next();
+        while (ready == RecordFrames.HEARTBEAT) ready = in.next();
+        if (ready != RecordFrames.READY) throw new IOException(
+          "frame inatteso"
+        );
+        Path module = take();
+        if (module == null) {
+          w.signal(RecordFrames.NO_MORE);
+          w.flush();
+          return;
+        }
+        current = module;
+        w.text(
+          RecordFrames.MODULE,
+          baseDir.relativize(module).toString().replace('\\', '/')
+        );
+        w.flush();
+        System.out.printf("   coordinatore: %s → %s%n", module, peer);
+
+        String repo = PathUtil.repoName(baseDir, module);
+        Set<String> forwarded = sent.computeIfAbsent(module, k ->
+          ConcurrentHashMap.newKeySet()
+        );
+        List<TestRecord> pending = new ArrayList<>();
+        boolean seeded = progress == null;
+        for (boolean open = true; open;) {
+          int type = in.next();
+          switch (type) {
+            case RecordFrames.RECORD -> {
+              TestRecord r = in.record(repo, module.toString());
+              if (!seeded) {
+                // Test già fatti secondo il progress del coordinatore
+                forwarded.addAll(progress.load(module, r.cfgId()));
+                seeded = true;
+              }
+              if (!forwarded.add(r.testClass() + "#" + r.testMethod())) continue;
+              if (!forward(r)) return;
+              pending.add(r);
+            }
+            case RecordFrames.HEARTBEAT -> {}
+            case RecordFrames.FLUSHED -> {
+              if (!persist(module, pending)) return;
+            }
+            case RecordFrames.DONE -> {
+              if (!persist(module, pending)) return;
+              finish(module);
+              open = false;
+            }
+            case RecordFrames.ERROR -> {
+              System.out.printf(
+                "   coordinatore: errore su %s (%s): %s%n",
+                module,
+                peer,
+                in.text()
+              );
+              if (!persist(module, pending)) return;
+              finish(module);
+              open = false;
+            }
+            case RecordFrames.OOM -> {
+              if (!persist(module, pending)) return;
+              retry(module, "OutOfMemoryError su " + peer);
+              open = false;
+            }
+            default -> throw new IOException("frame inatteso: " + type);
+          }
+        }
+        current = null;
+      }
+    } catch (SocketTimeoutException e) {
+      if (current != null) retry(
+        current,
+        "worker " + peer + " senza heartbeat da " + timeoutS() + " s"
+      );
+    } catch (IOException e) {
+      if (current != null) retry(current, "worker " + peer + " disconnesso");
+    }
+  }
+
+  /** workerTimeoutS, non meno di tre HEARTBEAT (0 = nessun limite). */
+  private int timeoutS() {
+    int t = cfg.workerTimeoutS();
+    return t <= 0 ? 0 : Math.max(t, 3 * RecordFrames.HEARTBEAT_S);
+  }
+
+  /**
+   * Rende persistenti i record inoltrati e solo dopo ne registra il progress; false se il
+   * sink è fallito e l'analisi si ferma.
+   */
+  private boolean persist(Path module, List<TestRecord> pending) {
+    if (!forward(null)) return false;
+    if (progress != null) for (TestRecord r : pending) {
+      String key = r.testClass() + "#" + r.testMethod();
+      progress.append(module, r.cfgId(), key);
+    }
+    pending.clear();
+    return true;
+  }
+
+  /** Scrive un record (null = solo flush); false se il sink è fallito e l'analisi si ferma. */
+  private boolean forward(TestRecord r) {
+    try {
+      if (r != null) out.write(r);
+      else out.flush();
+      return true;
+    } catch (Exception e) {
+      fail(e);
+      return false;
+    }
+  }
+
+  // ================= coda =================
+
+  /** Prossimo modulo; attende eventuali moduli rimessi in coda; null a lavoro finito. */
+  private Path take() {
+    lock.lock();
+    try {
+      while (queue.isEmpty() && remaining > 0 && failure == null) {
+        changed.await(POLL_MS, TimeUnit.MILLISECONDS);
+      }
+      return remaining > 0 && failure == null ? queue.poll() : null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void finish(Path module) {
+    lock.lock();
+    try {
+      remaining--;
+      sent.remove(module);
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void retry(Path module, String reason) {
+    lock.lock();
+    try {
+      int n = attempts.merge(module, 1, Integer::sum);
+      if (n >= MAX_ATTEMPTS) {
+        System.out.printf(
+          "   coordinatore: %s abbandonato dopo %d tentativi (%s)%n",
+          module,
+          n,
+          reason
+        );
+        remaining--;
+        sent.remove(module);
+      } else {
+        System.out.printf(
+          "   coordinatore: %s rimesso in coda (%s)%n",
+          module,
+          reason
+        );
+        queue.addFirst(module);
+      }
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void fail(Throwable t) {
+    lock.lock();
+    try {
+      if (failure == null) failure = t;
+      else failure.addSuppressed(t);
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void awaitDone() throws InterruptedException {
+    lock.lock();
+    try {
+      while (remaining > 0 && failure == null) {
+        changed.await(POLL_MS, TimeUnit.MILLISECONDS);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void rethrow() throws Exception {
+    if (failure == null) return;
+    if (failure instanceof Exception e) throw e;
+    if (failure instanceof Error e) throw e;
+    throw new RuntimeException(failure);
+  }
+}
@@ -0,0 +1,209 @@
+// file: src/main/java/ghs/analyzer/pipeline/ModuleScheduler.java
+package ghs.analyzer.pipeline;
+
+import ghs.analyzer.io.ClassInventory;
+import ghs.analyzer.io.InputResolver;
+import ghs.analyzer.model.ModuleInputs;
+import ghs.analyzer.util.MemoryUtil;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Esegue l'analisi di più moduli in parallelo. Un modulo viene ammesso solo se la sua stima
+ * di memoria (base + KiB per classe) entra sia nel budget non ancora riservato sia
+ * nell'headroom reale dell'heap; se non gira nulla viene ammesso comunque, così un modulo
+ * più grande dell'heap si comporta come nella modalità sequenziale. Le classi si contano
+ * sull'inventario del modulo (directory date dall'InputResolver), che passa poi al task.
+ */
+public final class ModuleScheduler {
+
+  /**
+   * Lavoro da eseguire per ciascun modulo ammesso; inventory è null se mancano le classi
+   * prod/test o non si sono potute leggere.
+   */
+  @FunctionalInterface
+  public interface ModuleTask {
+    void run(Path module, ClassInventory inventory) throws Exception;
+  }
+
+  /** Inventario di un modulo e stima di memoria che ne deriva. */
+  private record Sized(ClassInventory inventory, long mb) {}
+
+  private static final long POLL_MS = 1000;
+
+  private final int threads;
+  private final long baseMb;
+  private final long kbPerClass;
+  private final InputResolver resolver;
+  /** Classi per modulo già contate (sharding, stime dei worker), senza inventario. */
+  private final Map<Path, Long> counts = new ConcurrentHashMap<>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  private long reservedMb = 0;
+  private int running = 0;
+  private Throwable failure = null;
+
+  public ModuleScheduler(
+    int threads,
+    long baseMb,
+    long kbPerClass,
+    InputResolver resolver
+  ) {
+    this.threads = Math.max(1, threads);
+    this.baseMb = Math.max(0, baseMb);
+    this.kbPerClass = Math.max(0, kbPerClass);
+    this.resolver = resolver;
+  }
+
+  public void runAll(List<Path> modules, ModuleTask task) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "module-worker");
+      t.setDaemon(true);
+      return t;
+    });
+    try {
+      for (Path module : modules) {
+        Sized sized = size(module);
+        long cost = Math.min(sized.mb(), budgetMb());
+        if (!admit(module, cost)) break;
+        pool.execute(() -> {
+          try {
+            task.run(module, sized.inventory());
+          } catch (Throwable t) {
+            fail(t);
+          } finally {
+            release(cost);
+          }
+        });
+      }
+    } finally {
+      pool.shutdown();
+      awaitIdle();
+    }
+    rethrow();
+  }
+
+  /** Stima della memoria necessaria a un modulo in base al numero di .class prod/test. */
+  public long estimateMb(Path module) {
+    return baseMb + (classCount(module) * kbPerClass) / 1024;
+  }
+
+  /**
+   * Numero di .class prod e test del modulo, contate una volta sola e senza costruire
+   * l'inventario (lo sharding le conta per tutto il corpus).
+   */
+  long classCount(Path module) {
+    return counts.computeIfAbsent(module, m -> {
+      try {
+        ModuleInputs inputs = resolver.resolveInputsForModule(m);
+        // Senza classi prod/test il modulo si salta, come in size()
+        if (
+          !Files.isDirectory(inputs.prodClasses()) ||
+          !Files.isDirectory(inputs.testClasses())
+        ) return 0L;
+        return ClassInventory.count(inputs.prodClasses(), inputs.testClasses());
+      } catch (Exception e) {
+        return 0L;
+      }
+    });
+  }
+
+  // ================= helpers =================
+
+  /** Una sola visita delle directory del modulo; senza classi prod/test la stima è la base. */
+  private Sized size(Path module) {
+    try {
+      ModuleInputs inputs = resolver.resolveInputsForModule(module);
+      if (
+        !Files.isDirectory(inputs.prodClasses()) ||
+        !Files.isDirectory(inputs.testClasses())
+      ) return new Sized(null, baseMb);
+      ClassInventory inventory = ClassInventory.scan(
+        inputs.prodClasses(),
+        inputs.testClasses()
+      );
+      return new Sized(
+        inventory,
+        baseMb + (inventory.size() * kbPerClass) / 1024
+      );
+    } catch (Exception e) {
+      return new Sized(null, baseMb);
+    }
+  }
+
+  private boolean admit(Path module, long cost) throws InterruptedException {
+    lock.lock();
+    try {
+      while (
+        failure == null &&
+        running > 0 &&
+        (running >= threads ||
+          reservedMb + cost > budgetMb() ||
+          MemoryUtil.headroomMB() < cost)
+      ) {
+        changed.await(POLL_MS, TimeUnit.MILLISECONDS);
+      }
+      if (failure != null) return false;
+      running++;
+      reservedMb += cost;
+      System.out.printf(
+        "   scheduler: avvio %s (stima %d MiB, moduli attivi %d, riservati %d/%d MiB)%n",
+        module.getFileName(),
+        cost,
+        running,
+        reservedMb,
+        budgetMb()
+      );
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release(long cost) {
+    lock.lock();
+    try {
+      running--;
+      reservedMb -= cost;
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void fail(Throwable t) {
+    lock.lock();
+    try {
+      if (failure == null) failure = t;
+      else failure.addSuppressed(t);
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void awaitIdle() throws InterruptedException {
+    lock.lock();
+    try {
+      while (running > 0) changed.await(POLL_MS, TimeUnit.MILLISECONDS);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void rethrow() throws Exception {
+    if (failure == null) return;
+    if (failure instanceof Exception e) throw e;
+    if (failure instanceof Error e) throw e;
+    throw new RuntimeException(failure);
+  }
+
+  /** Budget complessivo: 90% dell'heap massimo, il resto resta per il main thread e il GC. */
+  private static long budgetMb() {
+    return (MemoryUtil.maxMB() * 9) / 10;
+  }
+}
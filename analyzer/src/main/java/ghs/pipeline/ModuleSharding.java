@@ -0,0 +1,87 @@
+package ghs.analyzer.pipeline;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * Ripartizione deterministica dei moduli tra più host ("--shard i/n"). Il costo di un modulo
+ * è il numero di classi prod+test; i moduli, dal più costoso al meno costoso (a parità, per
+ * percorso relativo a baseDir), vanno allo shard con il carico minore (a parità, l'indice
+ * più basso). Ogni host ottiene la stessa ripartizione senza coordinarsi, purché veda lo
+ * stesso corpus compilato e lo stesso filtro onlyFrom.
+ */
+final class ModuleSharding {
+
+  /** Shard i di n, con i da 1 a n. */
+  record Shard(int index, int count) {
+    /** null se spec è vuoto (nessuno sharding). */
+    static Shard parse(String spec) {
+      if (spec == null || spec.isBlank()) return null;
+      String[] parts = spec.trim().split("/");
+      try {
+        if (parts.length == 2) {
+          int i = Integer.parseInt(parts[0].trim());
+          int n = Integer.parseInt(parts[1].trim());
+          if (n >= 1 && i >= 1 && i <= n) return new Shard(i, n);
+        }
+      } catch (NumberFormatException ignored) {}
+      throw new IllegalArgumentException(
+        "shard non valido: " + spec + " (atteso i/n con 1 <= i <= n)"
+      );
+    }
+
+    @Override
+    public String toString() {
+      return index + "/" + count;
+    }
+  }
+
+  private ModuleSharding() {}
+
+  /** Moduli dello shard, nell'ordine originale. */
+  static List<Path> select(
+    Path baseDir,
+    List<Path> modules,
+    Shard shard,
+    ToLongFunction<Path> cost
+  ) {
+    record Weighted(Path module, String key, long cost) {}
+    List<Weighted> ws = new ArrayList<>();
+    for (Path m : modules) {
+      String key = baseDir.relativize(m).toString().replace('\\', '/');
+      // +1: anche i moduli senza classi compilate si distribuiscono a turno
+      ws.add(new Weighted(m, key, cost.applyAsLong(m) + 1));
+    }
+    ws.sort(
+      Comparator.comparingLong(Weighted::cost)
+        .reversed()
+        .thenComparing(Weighted::key)
+    );
+
+    long[] load = new long[shard.count()];
+    Set<Path> mine = new HashSet<>();
+    for (Weighted w : ws) {
+      int target = 0;
+      for (int s = 1; s < load.length; s++) {
+        if (load[s] < load[target]) target = s;
+      }
+      load[target] += w.cost();
+      if (target == shard.index() - 1) mine.add(w.module());
+    }
+
+    long total = Arrays.stream(load).sum();
+    System.out.printf(
+      "Shard %s: %d moduli su %d (costo %d/%d classi, shard più carico %d)%n",
+      shard,
+      mine.size(),
+      modules.size(),
+      load[shard.index() - 1],
+      total,
+      Arrays.stream(load).max().orElse(0)
+    );
+    List<Path> out = new ArrayList<>();
+    for (Path m : modules) if (mine.contains(m)) out.add(m);
+    return out;
+  }
+}
@@ -0,0 +1,155 @@
+package ghs.analyzer.pipeline;
+
+import ghs.analyzer.io.ModuleScanner;
+import ghs.analyzer.io.ProgressStore;
+import ghs.analyzer.util.PathUtil;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.json.JSONObject;
+
+/**
+ * Unisce le uscite JSONL degli shard (file, oppure directory di splitByRepo) in un solo
+ * dataset, nell'ordine degli input e senza record duplicati (stesso repo, modulo, cfgId e
+ * test: vale il primo). Le righe sono copiate senza ricodificarle.
+ *
+ * <p>I progress dei moduli si ricostruiscono dai record uniti nel corpus locale (baseDir): un
+ * host scrive il progress solo dopo il record, quindi i record coprono tutto ciò che gli
+ * shard hanno segnato come fatto. Il modulo di un record si riconosce dal percorso relativo
+ * più lungo che il suo campo module ha come suffisso, così i percorsi assoluti dei singoli
+ * host non contano.
+ */
+public final class ShardMerge {
+
+  private final ModuleScanner scanner;
+  private final ProgressStore progress;
+
+  public ShardMerge(ModuleScanner scanner, ProgressStore progress) {
+    this.scanner = scanner;
+    this.progress = progress;
+  }
+
+  public void run(Path baseDir, List<Path> inputs, Path outPath)
+    throws Exception {
+    Map<String, Path> local = new HashMap<>();
+    if (Files.isDirectory(baseDir)) {
+      for (Path m : scanner.findMavenModules(baseDir)) {
+        local.put(relative(baseDir, m), m);
+      }
+    } else {
+      System.out.println(
+        "   (warn) corpus locale assente, progress non ricostruiti: " + baseDir
+      );
+    }
+
+    Set<String> seen = new HashSet<>();
+    // modulo locale -> cfgId -> test, nell'ordine dei record
+    Map<Path, Map<String, Set<String>>> done = new LinkedHashMap<>();
+    int unmatched = 0;
+    Path dir = outPath.toAbsolutePath().getParent();
+    if (dir != null) Files.createDirectories(dir);
+    try (
+      BufferedWriter w = Files.newBufferedWriter(outPath, StandardCharsets.UTF_8)
+    ) {
+      for (Path input : inputs) {
+        int written = 0, duplicates = 0;
+        for (Path file : jsonlFiles(input)) {
+          try (
+            BufferedReader r = Files.newBufferedReader(
+              file,
+              StandardCharsets.UTF_8
+            )
+          ) {
+            for (String line; (line = r.readLine()) != null;) {
+              if (line.isBlank()) continue;
+              JSONObject row = new JSONObject(line);
+              String repo = row.optString("repo");
+              String module = row.optString("module");
+              String cfgId = row.optString("cfgId");
+              String test =
+                row.optString("testClass") + "#" + row.optString("testMethod");
+              if (!seen.add(repo + "\n" + module + "\n" + cfgId + "\n" + test)) {
+                duplicates++;
+                continue;
+              }
+              w.write(line);
+              w.write("\n");
+              written++;
+
+              Path m = match(local, baseDir, repo, module);
+              if (m == null) unmatched++;
+              else done
+                .computeIfAbsent(m, k -> new LinkedHashMap<>())
+                .computeIfAbsent(cfgId, k -> new LinkedHashSet<>())
+                .add(test);
+            }
+          }
+        }
+        System.out.printf(
+          "   %s: %d record, %d duplicati scartati%n",
+          input,
+          written,
+          duplicates
+        );
+      }
+    }
+
+    int appended = 0;
+    for (Map.Entry<Path, Map<String, Set<String>>> e : done.entrySet()) {
+      for (Map.Entry<String, Set<String>> c : e.getValue().entrySet()) {
+        Set<String> already = progress.load(e.getKey(), c.getKey());
+        for (String test : c.getValue()) {
+          if (already.contains(test)) continue;
+          progress.append(e.getKey(), c.getKey(), test);
+          appended++;
+        }
+      }
+    }
+    System.out.printf(
+      "Progress: %d test aggiunti in %d moduli%s%n",
+      appended,
+      done.size(),
+      unmatched > 0
+        ? String.format(" (%d record senza modulo locale)", unmatched)
+        : ""
+    );
+  }
+
+  // ================= helpers =================
+
+  /** Modulo locale con il percorso relativo più lungo che chiude il campo module del record. */
+  private static Path match(
+    Map<String, Path> local,
+    Path baseDir,
+    String repo,
+    String module
+  ) {
+    if (local.isEmpty() || module.isEmpty()) return null;
+    Path p = Paths.get(module);
+    for (int i = 0; i < p.getNameCount(); i++) {
+      Path m = local.get(
+        p.subpath(i, p.getNameCount()).toString().replace('\\', '/')
+      );
+      if (m != null && PathUtil.repoName(baseDir, m).equals(repo)) return m;
+    }
+    return null;
+  }
+
+  private static String relative(Path baseDir, Path module) {
+    return baseDir.relativize(module).toString().replace('\\', '/');
+  }
+
+  private static List<Path> jsonlFiles(Path input) throws Exception {
+    if (!Files.isDirectory(input)) return List.of(input);
+    try (Stream<Path> s = Files.list(input)) {
+      return s
+        .filter(p -> p.toString().endsWith(".jsonl"))
+        .sorted()
+        .collect(Collectors.toList());
+    }
+  }
+}
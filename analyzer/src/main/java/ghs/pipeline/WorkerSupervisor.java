@@ -0,0 +1,271 @@
+package ghs.analyzer.pipeline;
+
+import ghs.analyzer.io.OutputSink;
+import ghs.analyzer.io.ProgressStore;
+import ghs.analyzer.io.StreamOutputSink;
+import ghs.analyzer.model.AnalysisConfig;
+import ghs.analyzer.model.TestRecord;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * Analizza i moduli in JVM figlie (app.WorkerMain), una per slot, così un OutOfMemoryError
+ * o un crash costano solo il modulo in corso. Ogni modulo parte nel worker con l'heap più
+ * piccolo tra quelli configurati che copre la stima di ModuleScheduler; se il worker muore
+ * il modulo riparte con l'heap successivo; solo con l'heap più grande i batch si dividono
+ * su OOM (bisectOom) invece di arrendersi. I record arrivano in streaming sul canale del
+ * protocollo (stdout del figlio) e finiscono nell'OutputSink del processo padre; i log del
+ * figlio passano da stderr. Il progress del resume lo registra il padre, dopo il flush del
+ * proprio sink: il figlio lo legge soltanto.
+ *
+ * <p>Protocollo: il padre scrive un modulo per riga su stdin; il figlio risponde con righe
+ * "R &lt;json&gt;" (record) e "F" (fine di un batch), poi "D" (modulo finito),
+ * "E &lt;messaggio&gt;" (errore non di memoria) oppure "O" (OutOfMemoryError, dopo cui
+ * termina).
+ */
+public final class WorkerSupervisor {
+
+  private final AnalysisConfig cfg;
+  private final List<String> args;
+  private final OutputSink out;
+  private final ProgressStore progress;
+  private final List<Integer> heapsMb;
+
+  public WorkerSupervisor(
+    AnalysisConfig cfg,
+    List<String> args,
+    OutputSink out,
+    ProgressStore progress
+  ) {
+    this.cfg = cfg;
+    this.args = List.copyOf(args);
+    this.out = out;
+    this.progress = cfg.resume() && !cfg.incremental() ? progress : null;
+    this.heapsMb = parseHeaps(cfg.workerHeapsMb());
+  }
+
+  /** estimateMb: stima di memoria di un modulo (ModuleScheduler.estimateMb). */
+  public void runAll(List<Path> modules, ToLongFunction<Path> estimateMb)
+    throws Exception {
+    System.out.printf(
+      "Worker JVM: %d slot, heap %s MB, %d moduli%n",
+      cfg.workers(),
+      heapsMb,
+      modules.size()
+    );
+    Queue<Path> queue = new ConcurrentLinkedQueue<>(modules);
+    ExecutorService slots = Executors.newFixedThreadPool(cfg.workers(), r -> {
+      Thread t = new Thread(r, "worker-slot");
+      t.setDaemon(true);
+      return t;
+    });
+    List<Future<?>> running = new ArrayList<>();
+    for (int i = 0; i < cfg.workers(); i++) {
+      running.add(
+        slots.submit(() -> {
+          runSlot(queue, estimateMb);
+          return null;
+        })
+      );
+    }
+    try {
+      for (Future<?> f : running) {
+        try {
+          f.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Exception ex) throw ex;
+          throw e;
+        }
+      }
+    } finally {
+      slots.shutdownNow();
+    }
+  }
+
+  private void runSlot(Queue<Path> queue, ToLongFunction<Path> estimateMb)
+    throws Exception {
+    Worker worker = null;
+    try {
+      for (Path module; (module = queue.poll()) != null;) {
+        // Test già inoltrati: un retry senza resume non li duplica nell'output
+        Set<String> sent = new HashSet<>();
+        int tier = initialTier(estimateMb.applyAsLong(module));
+        while (true) {
+          int heap = heapsMb.get(tier);
+          if (worker != null && worker.heapMb != heap) {
+            worker.stop();
+            worker = null;
+          }
+          if (worker == null) worker = Worker.start(
+            heap,
+            args,
+            tier + 1 < heapsMb.size()
+          );
+          String outcome = worker.analyze(module, out, progress, sent);
+          if (outcome.equals(StreamOutputSink.DONE)) break;
+          if (outcome.startsWith(StreamOutputSink.ERROR)) {
+            System.out.printf(
+              "   worker: errore su %s: %s%n",
+              module,
+              outcome.substring(StreamOutputSink.ERROR.length())
+            );
+            break;
+          }
+          // "O" o processo terminato: il worker va sostituito
+          worker.stop();
+          worker = null;
+          if (tier + 1 >= heapsMb.size()) {
+            System.out.printf(
+              "   worker: %s abbandonato (morto anche con %d MB)%n",
+              module,
+              heap
+            );
+            break;
+          }
+          tier++;
+          System.out.printf(
+            "   worker: %s morto con %d MB, riprovo con %d MB%n",
+            module,
+            heap,
+            heapsMb.get(tier)
+          );
+        }
+      }
+    } finally {
+      if (worker != null) worker.stop();
+    }
+  }
+
+  /** Heap più piccolo che copre la stima del modulo (l'ultimo se nessuno basta). */
+  private int initialTier(long estimate) {
+    for (int i = 0; i < heapsMb.size(); i++) {
+      if (heapsMb.get(i) >= estimate) return i;
+    }
+    return heapsMb.size() - 1;
+  }
+
+  private static List<Integer> parseHeaps(String spec) {
+    TreeSet<Integer> heaps = new TreeSet<>();
+    for (String s : spec.split(",")) {
+      if (!s.isBlank()) heaps.add(Integer.parseInt(s.trim()));
+    }
+    if (heaps.isEmpty()) heaps.add(1536);
+    return new ArrayList<>(heaps);
+  }
+
+  /** Una JVM figlia con il suo heap, riusata per più moduli finché non muore. */
+  private static final class Worker {
+
+    final int heapMb;
+    final Process process;
+    final BufferedReader in;
+    final Writer commands;
+
+    private Worker(int heapMb, Process process) {
+      this.heapMb = heapMb;
+      this.process = process;
+      this.in = new BufferedReader(
+        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)
+      );
+      this.commands = new OutputStreamWriter(
+        process.getOutputStream(),
+        StandardCharsets.UTF_8
+      );
+    }
+
+    /**
+     * escalate: c'è un heap più grande, quindi niente bisezione dei batch su OOM nel figlio;
+     * altrimenti il figlio la attiva.
+     */
+    static Worker start(int heapMb, List<String> args, boolean escalate)
+      throws IOException {
+      List<String> cmd = new ArrayList<>();
+      cmd.add(
+        Paths.get(System.getProperty("java.home"), "bin", "java").toString()
+      );
+      cmd.add("-Xmx" + heapMb + "m");
+      cmd.add("-cp");
+      cmd.add(System.getProperty("java.class.path"));
+      cmd.add("ghs.analyzer.app.WorkerMain");
+      cmd.addAll(args);
+      cmd.addAll(List.of("--bisectOom", String.valueOf(!escalate)));
+      Process p = new ProcessBuilder(cmd)
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+      return new Worker(heapMb, p);
+    }
+
+    /**
+     * Esito del modulo: DONE, ERROR + messaggio oppure OOM (anche se il processo è
+     * terminato). A ogni flush del figlio e a fine modulo i record ricevuti vengono resi
+     * persistenti in out e poi registrati in progress (se non null).
+     */
+    String analyze(
+      Path module,
+      OutputSink out,
+      ProgressStore progress,
+      Set<String> sent
+    ) throws Exception {
+      List<TestRecord> pending = new ArrayList<>();
+      try {
+        commands.write(module.toString());
+        commands.write("\n");
+        commands.flush();
+      } catch (IOException e) {
+        return StreamOutputSink.OOM;
+      }
+      for (String line; (line = in.readLine()) != null;) {
+        if (line.startsWith(StreamOutputSink.RECORD)) {
+          TestRecord r = StreamOutputSink.decode(
+            line.substring(StreamOutputSink.RECORD.length())
+          );
+          if (sent.add(r.testClass() + "#" + r.testMethod())) {
+            out.write(r);
+            pending.add(r);
+          }
+        } else if (line.equals(StreamOutputSink.FLUSH)) {
+          persist(module, out, progress, pending);
+        } else if (
+          line.equals(StreamOutputSink.DONE) ||
+          line.equals(StreamOutputSink.OOM) ||
+          line.startsWith(StreamOutputSink.ERROR)
+        ) {
+          persist(module, out, progress, pending);
+          return line;
+        }
+      }
+      persist(module, out, progress, pending);
+      return StreamOutputSink.OOM;
+    }
+
+    private static void persist(
+      Path module,
+      OutputSink out,
+      ProgressStore progress,
+      List<TestRecord> pending
+    ) throws Exception {
+      out.flush();
+      if (progress != null) for (TestRecord r : pending) {
+        String key = r.testClass() + "#" + r.testMethod();
+        progress.append(module, r.cfgId(), key);
+      }
+      pending.clear();
+    }
+
+    void stop() {
+      try {
+        commands.close();
+      } catch (IOException ignored) {}
+      try {
+        if (!process.waitFor(5, TimeUnit.SECONDS)) process.destroyForcibly();
+      } catch (InterruptedException e) {
+        process.destroyForcibly();
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package ghs.analyzer.sootupview;
+
+import ghs.analyzer.io.ClassInventory;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+import sootup.core.frontend.SootClassSource;
+import sootup.core.inputlocation.AnalysisInputLocation;
+import sootup.core.model.SourceType;
+import sootup.core.transform.BodyInterceptor;
+import sootup.core.types.ClassType;
+import sootup.core.views.View;
+import sootup.interceptors.BytecodeBodyInterceptors;
+import sootup.java.bytecode.frontend.conversion.AsmJavaClassProvider;
+import sootup.java.bytecode.frontend.inputlocation.PathBasedAnalysisInputLocation;
+
+/**
+ * Directory di class file servita dall'inventario del modulo: l'elenco delle classi
+ * (getClassSources) arriva da ClassInventory invece che da una nuova visita del disco per
+ * ogni view. Il caricamento puntuale e gli interceptor sono quelli di
+ * JavaClassPathAnalysisInputLocation su una directory.
+ */
+public final class InventoryInputLocation implements AnalysisInputLocation {
+
+  private final AnalysisInputLocation delegate;
+  private final List<ClassInventory.Entry> entries;
+
+  public InventoryInputLocation(Path root, List<ClassInventory.Entry> entries) {
+    this.delegate = PathBasedAnalysisInputLocation.create(
+      root,
+      SourceType.Application,
+      BytecodeBodyInterceptors.Default.getBodyInterceptors()
+    );
+    this.entries = entries;
+  }
+
+  /** Le due directory del modulo (prod, poi test). */
+  public static List<AnalysisInputLocation> of(ClassInventory inv) {
+    return List.of(
+      new InventoryInputLocation(inv.prodRoot(), inv.prodEntries()),
+      new InventoryInputLocation(inv.testRoot(), inv.testEntries())
+    );
+  }
+
+  @Override
+  public Optional<? extends SootClassSource> getClassSource(
+    ClassType type,
+    View view
+  ) {
+    return delegate.getClassSource(type, view);
+  }
+
+  @Override
+  public Stream<? extends SootClassSource> getClassSources(View view) {
+    AsmJavaClassProvider provider = new AsmJavaClassProvider(view);
+    return entries
+      .stream()
+      .filter(e -> !e.file().endsWith("module-info.class"))
+      .map(e ->
+        provider.createClassSource(
+          this,
+          e.file(),
+          view.getIdentifierFactory().getClassType(e.fqn())
+        )
+      )
+      .flatMap(Optional::stream);
+  }
+
+  @Override
+  public SourceType getSourceType() {
+    return delegate.getSourceType();
+  }
+
+  @Override
+  public List<BodyInterceptor> getBodyInterceptors() {
+    return delegate.getBodyInterceptors();
+  }
+}
@@ -15,4 +15,9 @@ public final class MemoryUtil {
   public static long maxMB() {
     return Runtime.getRuntime().maxMemory() / (1024 * 1024);
   }
+
+  /** Memoria ancora allocabile prima di raggiungere -Xmx. */
+  public static long headroomMB() {
+    return maxMB() - usedMB();
+  }
 }